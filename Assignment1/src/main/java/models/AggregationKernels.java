@@ -0,0 +1,130 @@
+package models;
+
+/**
+ * Aggregations over primitive arrays of wagon attributes, see {@link WagonAttributes}.
+ * The masked kernels only include the elements of which the type (a WagonType ordinal) matches,
+ * selecting values without branches, so the JIT can compile the loops to conditional moves
+ * or, where it can, vector instructions. The loops are unrolled over four independent accumulators.
+ */
+public class AggregationKernels {
+
+    private AggregationKernels() {
+    }
+
+    public static long sum(int[] values) {
+        long sum0 = 0, sum1 = 0, sum2 = 0, sum3 = 0;
+        int i = 0;
+        for (int end = values.length & ~3; i < end; i += 4) {
+            sum0 += values[i];
+            sum1 += values[i + 1];
+            sum2 += values[i + 2];
+            sum3 += values[i + 3];
+        }
+        for (; i < values.length; i++) {
+            sum0 += values[i];
+        }
+        return sum0 + sum1 + sum2 + sum3;
+    }
+
+    /**
+     * @param values
+     * @param types the type of every element
+     * @param type  the type of the elements to include
+     * @return  the sum of the included elements
+     */
+    public static long sum(int[] values, byte[] types, WagonType type) {
+        int selected = type.ordinal();
+        long sum0 = 0, sum1 = 0, sum2 = 0, sum3 = 0;
+        int i = 0;
+        for (int end = values.length & ~3; i < end; i += 4) {
+            sum0 += values[i] & mask(types[i], selected);
+            sum1 += values[i + 1] & mask(types[i + 1], selected);
+            sum2 += values[i + 2] & mask(types[i + 2], selected);
+            sum3 += values[i + 3] & mask(types[i + 3], selected);
+        }
+        for (; i < values.length; i++) {
+            sum0 += values[i] & mask(types[i], selected);
+        }
+        return sum0 + sum1 + sum2 + sum3;
+    }
+
+    /**
+     * @return  the minimum of the included elements, or Integer.MAX_VALUE if there are none
+     */
+    public static int min(int[] values, byte[] types, WagonType type) {
+        int selected = type.ordinal();
+        int min0 = Integer.MAX_VALUE, min1 = Integer.MAX_VALUE, min2 = Integer.MAX_VALUE, min3 = Integer.MAX_VALUE;
+        int i = 0;
+        for (int end = values.length & ~3; i < end; i += 4) {
+            min0 = Math.min(min0, select(values[i], Integer.MAX_VALUE, mask(types[i], selected)));
+            min1 = Math.min(min1, select(values[i + 1], Integer.MAX_VALUE, mask(types[i + 1], selected)));
+            min2 = Math.min(min2, select(values[i + 2], Integer.MAX_VALUE, mask(types[i + 2], selected)));
+            min3 = Math.min(min3, select(values[i + 3], Integer.MAX_VALUE, mask(types[i + 3], selected)));
+        }
+        for (; i < values.length; i++) {
+            min0 = Math.min(min0, select(values[i], Integer.MAX_VALUE, mask(types[i], selected)));
+        }
+        return Math.min(Math.min(min0, min1), Math.min(min2, min3));
+    }
+
+    /**
+     * @return  the maximum of the included elements, or Integer.MIN_VALUE if there are none
+     */
+    public static int max(int[] values, byte[] types, WagonType type) {
+        int selected = type.ordinal();
+        int max0 = Integer.MIN_VALUE, max1 = Integer.MIN_VALUE, max2 = Integer.MIN_VALUE, max3 = Integer.MIN_VALUE;
+        int i = 0;
+        for (int end = values.length & ~3; i < end; i += 4) {
+            max0 = Math.max(max0, select(values[i], Integer.MIN_VALUE, mask(types[i], selected)));
+            max1 = Math.max(max1, select(values[i + 1], Integer.MIN_VALUE, mask(types[i + 1], selected)));
+            max2 = Math.max(max2, select(values[i + 2], Integer.MIN_VALUE, mask(types[i + 2], selected)));
+            max3 = Math.max(max3, select(values[i + 3], Integer.MIN_VALUE, mask(types[i + 3], selected)));
+        }
+        for (; i < values.length; i++) {
+            max0 = Math.max(max0, select(values[i], Integer.MIN_VALUE, mask(types[i], selected)));
+        }
+        return Math.max(Math.max(max0, max1), Math.max(max2, max3));
+    }
+
+    /**
+     * @return  the number of included elements with a value from min up to and including max
+     */
+    public static int countBetween(int[] values, byte[] types, WagonType type, int min, int max) {
+        if (min > max) {
+            return 0;
+        }
+
+        int selected = type.ordinal();
+        int count0 = 0, count1 = 0, count2 = 0, count3 = 0;
+        int i = 0;
+        for (int end = values.length & ~3; i < end; i += 4) {
+            count0 += inRange(values[i], min, max) & mask(types[i], selected);
+            count1 += inRange(values[i + 1], min, max) & mask(types[i + 1], selected);
+            count2 += inRange(values[i + 2], min, max) & mask(types[i + 2], selected);
+            count3 += inRange(values[i + 3], min, max) & mask(types[i + 3], selected);
+        }
+        for (; i < values.length; i++) {
+            count0 += inRange(values[i], min, max) & mask(types[i], selected);
+        }
+        return count0 + count1 + count2 + count3;
+    }
+
+    /**
+     * @return  all one bits (-1) if the type is the selected type, otherwise 0
+     */
+    private static int mask(byte type, int selected) {
+        return ((type ^ selected) - 1) >> 31;
+    }
+
+    private static int select(int value, int otherwise, int mask) {
+        return (value & mask) | (otherwise & ~mask);
+    }
+
+    /**
+     * @return  1 if min <= value <= max, otherwise 0 (given min <= max)
+     */
+    private static int inRange(int value, int min, int max) {
+        // unsigned comparison of the offset from min covers both bounds at once
+        return Integer.compareUnsigned(value - min, max - min) <= 0 ? 1 : 0;
+    }
+}
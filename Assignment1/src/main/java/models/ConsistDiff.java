@@ -0,0 +1,193 @@
+package models;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Computes the changes that turn one consist (sequence of wagons) into another,
+ * keyed by wagon id, so a display of the old consist can be updated incrementally.
+ * The wagon ids within one consist must be unique.
+ *
+ * The wagons that keep their relative order form the longest increasing subsequence
+ * of their old positions (found by patience sorting in O(n log n)),
+ * every other common wagon is moved, which is the least number of moves possible.
+ * If more wagons keep their order when the old consist is reversed,
+ * the edit script starts with a reversal.
+ *
+ * The edits are reported in an order in which they can be applied one by one:
+ *      first the reversal (if any),
+ *      then all removals,
+ *      then the inserts and moves in the order of the new consist,
+ *      each placing a wagon directly behind its predecessor in the new consist.
+ */
+public class ConsistDiff {
+
+    /**
+     * Receives the edits of a diff, as soon as they are found.
+     */
+    public interface Listener {
+
+        /**
+         * The order of the wagons of the old consist is reversed.
+         */
+        void reversed();
+
+        /**
+         * @param wagonId   a wagon of the old consist that is not part of the new consist
+         */
+        void removed(int wagonId);
+
+        /**
+         * @param wagonId   a wagon of the new consist that was not part of the old consist
+         * @param afterWagonId  the wagon to insert it behind, or null to insert it at the front
+         */
+        void inserted(int wagonId, Integer afterWagonId);
+
+        /**
+         * @param wagonId   a wagon of both consists that changes its place
+         * @param afterWagonId  the wagon to move it behind, or null to move it to the front
+         */
+        void moved(int wagonId, Integer afterWagonId);
+    }
+
+    private ConsistDiff() {
+    }
+
+    public static void diff(Train from, Train to, Listener listener) {
+        diff(idsOf(from), idsOf(to), listener);
+    }
+
+    public static void diff(FrozenTrain from, FrozenTrain to, Listener listener) {
+        diff(idsOf(from), idsOf(to), listener);
+    }
+
+    /**
+     * Reports the edits that turn the consist with the wagon ids in from
+     * into the consist with the wagon ids in to
+     * @param from  the wagon ids of the old consist, from front to rear
+     * @param to    the wagon ids of the new consist, from front to rear
+     * @param listener
+     */
+    public static void diff(int[] from, int[] to, Listener listener) {
+        Map<Integer, Integer> positionsInFrom = positionsById(from);
+        Map<Integer, Integer> positionsInTo = positionsById(to);
+
+        // for every wagon of the new consist its position in the old consist, or -1 if it is new
+        int[] source = new int[to.length];
+        for (int j = 0; j < to.length; j++) {
+            Integer position = positionsInFrom.get(to[j]);
+            source[j] = position == null ? -1 : position;
+        }
+
+        boolean[] keepInOrder = longestRunInOrder(source, false);
+        boolean[] keepReversed = longestRunInOrder(source, true);
+        boolean reverse = count(keepReversed) > count(keepInOrder);
+        boolean[] keep = reverse ? keepReversed : keepInOrder;
+
+        if (reverse) {
+            listener.reversed();
+        }
+
+        for (int i = 0; i < from.length; i++) {
+            int id = from[reverse ? from.length - 1 - i : i];
+            if (!positionsInTo.containsKey(id)) {
+                listener.removed(id);
+            }
+        }
+
+        for (int j = 0; j < to.length; j++) {
+            if (keep[j]) {
+                continue;
+            }
+
+            Integer afterWagonId = j == 0 ? null : to[j - 1];
+            if (source[j] < 0) {
+                listener.inserted(to[j], afterWagonId);
+            } else {
+                listener.moved(to[j], afterWagonId);
+            }
+        }
+    }
+
+    /**
+     * Finds a longest subsequence of the old positions (ignoring -1)
+     * that is increasing, or decreasing if reversed, by patience sorting.
+     * @param source
+     * @param reversed
+     * @return  for every element of source whether it is part of the subsequence
+     */
+    private static boolean[] longestRunInOrder(int[] source, boolean reversed) {
+        // tails[k] is the index in source of the smallest tail of a run of length k + 1
+        int[] tails = new int[source.length];
+        int[] predecessors = new int[source.length];
+        int length = 0;
+
+        for (int j = 0; j < source.length; j++) {
+            if (source[j] < 0) {
+                continue;
+            }
+
+            int key = reversed ? -source[j] : source[j];
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                int tail = reversed ? -source[tails[middle]] : source[tails[middle]];
+                if (tail < key) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+
+            predecessors[j] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = j;
+            if (low == length) {
+                length++;
+            }
+        }
+
+        boolean[] run = new boolean[source.length];
+        for (int j = length > 0 ? tails[length - 1] : -1; j >= 0; j = predecessors[j]) {
+            run[j] = true;
+        }
+        return run;
+    }
+
+    private static int count(boolean[] flags) {
+        int count = 0;
+        for (boolean flag : flags) {
+            if (flag) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static Map<Integer, Integer> positionsById(int[] ids) {
+        Map<Integer, Integer> positions = new HashMap<>(2 * ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            if (positions.put(ids[i], i) != null) {
+                throw new IllegalArgumentException("Wagon " + ids[i] + " appears more than once in the consist");
+            }
+        }
+        return positions;
+    }
+
+    private static int[] idsOf(Train train) {
+        int[] ids = new int[train.getNumberOfWagons()];
+        int position = 0;
+        for (Wagon wagon : train.sharedWagons()) {
+            ids[position++] = wagon.getId();
+        }
+        return ids;
+    }
+
+    private static int[] idsOf(FrozenTrain train) {
+        int[] ids = new int[train.getNumberOfWagons()];
+        for (int position = 1; position <= ids.length; position++) {
+            ids[position - 1] = train.getWagonIdAtPosition(position);
+        }
+        return ids;
+    }
+}
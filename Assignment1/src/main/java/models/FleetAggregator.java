@@ -0,0 +1,151 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+/**
+ * Calculates totals of seats and maximum weight over a fleet of trains,
+ * grouped by route, by locomotive or by wagon type.
+ * The trains are divided over the threads of a fork-join pool.
+ * The totals of a train are read from the counters that the train keeps up to date, in O(1),
+ * so nothing is cached per train.
+ * The trains should not be changed while an aggregation is running.
+ */
+public class FleetAggregator {
+    // below this number of trains a task does not split itself any further
+    private static final int THRESHOLD = 256;
+
+    private final ForkJoinPool pool;
+
+    public FleetAggregator() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public FleetAggregator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * The accumulated numbers of a group of trains.
+     */
+    public static class Totals {
+        private final int numberOfTrains;
+        private final long numberOfWagons;
+        private final long totalNumberOfSeats;
+        private final long totalMaxWeight;
+
+        private Totals(int numberOfTrains, long numberOfWagons, long totalNumberOfSeats, long totalMaxWeight) {
+            this.numberOfTrains = numberOfTrains;
+            this.numberOfWagons = numberOfWagons;
+            this.totalNumberOfSeats = totalNumberOfSeats;
+            this.totalMaxWeight = totalMaxWeight;
+        }
+
+        private Totals plus(Totals other) {
+            return new Totals(numberOfTrains + other.numberOfTrains,
+                    numberOfWagons + other.numberOfWagons,
+                    totalNumberOfSeats + other.totalNumberOfSeats,
+                    totalMaxWeight + other.totalMaxWeight);
+        }
+
+        public int getNumberOfTrains() {
+            return numberOfTrains;
+        }
+
+        public long getNumberOfWagons() {
+            return numberOfWagons;
+        }
+
+        public long getTotalNumberOfSeats() {
+            return totalNumberOfSeats;
+        }
+
+        public long getTotalMaxWeight() {
+            return totalMaxWeight;
+        }
+
+        @Override
+        public String toString() {
+            return numberOfTrains + " trains with " + numberOfWagons + " wagons, "
+                    + totalNumberOfSeats + " seats and " + totalMaxWeight + " maximum weight";
+        }
+    }
+
+    /**
+     * @param train
+     * @return  the totals of the given train
+     */
+    public Totals totalsOf(Train train) {
+        return new Totals(1, train.getNumberOfWagons(), train.getTotalNumberOfSeats(), train.getTotalMaxWeight());
+    }
+
+    public Map<Route, Totals> totalsPerRoute(Collection<Train> trains) {
+        return aggregate(trains, Route::of);
+    }
+
+    /**
+     * @param trains
+     * @return  the totals of the trains grouped by the number of their locomotive
+     */
+    public Map<Integer, Totals> totalsPerLocomotive(Collection<Train> trains) {
+        return aggregate(trains, train -> train.getEngine().getLocNumber());
+    }
+
+    /**
+     * @param trains
+     * @return  the totals of the trains grouped by the type of their wagons
+     *          (trains without wagons are not included)
+     */
+    public Map<WagonType, Totals> totalsPerWagonType(Collection<Train> trains) {
+        return aggregate(trains, Train::getType);
+    }
+
+    private <K> Map<K, Totals> aggregate(Collection<Train> trains, Function<Train, K> classifier) {
+        List<Train> list = new ArrayList<>(trains);
+        return pool.invoke(new AggregateTask<>(list, 0, list.size(), classifier));
+    }
+
+    private class AggregateTask<K> extends RecursiveTask<Map<K, Totals>> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Train> trains;
+        private final int from;
+        private final int to;
+        private final Function<Train, K> classifier;
+
+        AggregateTask(List<Train> trains, int from, int to, Function<Train, K> classifier) {
+            this.trains = trains;
+            this.from = from;
+            this.to = to;
+            this.classifier = classifier;
+        }
+
+        @Override
+        protected Map<K, Totals> compute() {
+            if (to - from <= THRESHOLD) {
+                Map<K, Totals> result = new HashMap<>();
+                for (int i = from; i < to; i++) {
+                    Train train = trains.get(i);
+                    K key = classifier.apply(train);
+                    if (key != null) {
+                        result.merge(key, totalsOf(train), Totals::plus);
+                    }
+                }
+                return result;
+            }
+
+            int middle = (from + to) >>> 1;
+            AggregateTask<K> left = new AggregateTask<>(trains, from, middle, classifier);
+            left.fork();
+            Map<K, Totals> result = new AggregateTask<>(trains, middle, to, classifier).compute();
+            left.join().forEach((key, totals) -> result.merge(key, totals, Totals::plus));
+            return result;
+        }
+    }
+}
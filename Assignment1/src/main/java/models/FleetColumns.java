@@ -0,0 +1,404 @@
+package models;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * A columnar file of the wagons of a fleet, with one row per wagon, for analysis.
+ * The columns are trainId, locNumber, position, wagonId, type, seats and maxWeight
+ * (seats is 0 for a freight wagon, maxWeight is 0 for a passenger wagon).
+ *
+ * Layout, all numbers big-endian:
+ *      header      magic, format version, number of rows, number of columns
+ *      directory   for every column: its name, encoding, offset and length in bytes
+ *      columns     the data of every column:
+ *                  PLAIN       one int per row
+ *                  RUN_LENGTH  (value, run length) pairs of ints
+ *                  DICTIONARY  the number of entries, every entry as (length, UTF-8 bytes),
+ *                              followed by the run-length encoded entry numbers
+ *
+ * The file is written in one walk over the trains, through direct buffers.
+ * A file is read with {@link #open(Path)}, which memory-maps each column on its own when it is requested.
+ */
+public class FleetColumns implements Closeable {
+    private static final int MAGIC = 0x54434f4c;
+    private static final int FORMAT_VERSION = 1;
+
+    public static final String TRAIN_ID = "trainId";
+    public static final String LOC_NUMBER = "locNumber";
+    public static final String POSITION = "position";
+    public static final String WAGON_ID = "wagonId";
+    public static final String TYPE = "type";
+    public static final String SEATS = "seats";
+    public static final String MAX_WEIGHT = "maxWeight";
+
+    public enum Encoding {
+        PLAIN,
+        RUN_LENGTH,
+        DICTIONARY
+    }
+
+    private final FileChannel channel;
+    private final int numberOfRows;
+    private final Map<String, ColumnEntry> directory;
+
+    private FleetColumns(FileChannel channel, int numberOfRows, Map<String, ColumnEntry> directory) {
+        this.channel = channel;
+        this.numberOfRows = numberOfRows;
+        this.directory = directory;
+    }
+
+    /**
+     * The place of a column in the file.
+     */
+    private static class ColumnEntry {
+        private final Encoding encoding;
+        private final long offset;
+        private final long length;
+
+        private ColumnEntry(Encoding encoding, long offset, long length) {
+            this.encoding = encoding;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Writes the wagons of the given trains to a columnar file
+     * @param file
+     * @param trains    the trains by their train id
+     * @throws IOException
+     */
+    public static void write(Path file, Map<Integer, Train> trains) throws IOException {
+        ColumnWriter trainIds = new ColumnWriter(TRAIN_ID, Encoding.RUN_LENGTH);
+        ColumnWriter locNumbers = new ColumnWriter(LOC_NUMBER, Encoding.RUN_LENGTH);
+        ColumnWriter positions = new ColumnWriter(POSITION, Encoding.PLAIN);
+        ColumnWriter wagonIds = new ColumnWriter(WAGON_ID, Encoding.PLAIN);
+        ColumnWriter types = new ColumnWriter(TYPE, Encoding.DICTIONARY);
+        ColumnWriter seats = new ColumnWriter(SEATS, Encoding.RUN_LENGTH);
+        ColumnWriter maxWeights = new ColumnWriter(MAX_WEIGHT, Encoding.RUN_LENGTH);
+        List<ColumnWriter> columns = List.of(trainIds, locNumbers, positions, wagonIds, types, seats, maxWeights);
+
+        int numberOfRows = 0;
+        for (Map.Entry<Integer, Train> entry : trains.entrySet()) {
+            Train train = entry.getValue();
+            int position = 1;
+            for (Wagon wagon : train.sharedWagons()) {
+                trainIds.add(entry.getKey());
+                locNumbers.add(train.getEngine().getLocNumber());
+                positions.add(position++);
+                wagonIds.add(wagon.getId());
+                types.add(wagon.getType().name());
+                seats.add(wagon instanceof PassengerWagon ? ((PassengerWagon) wagon).getNumberOfSeats() : 0);
+                maxWeights.add(wagon instanceof FreightWagon ? ((FreightWagon) wagon).getMaxWeight() : 0);
+                numberOfRows++;
+            }
+        }
+
+        List<ByteBuffer> data = new ArrayList<>();
+        int headerSize = 4 * Integer.BYTES;
+        for (ColumnWriter column : columns) {
+            data.add(column.finish());
+            headerSize += Short.BYTES + column.name.getBytes(StandardCharsets.UTF_8).length + 1 + 2 * Long.BYTES;
+        }
+
+        ByteBuffer header = ByteBuffer.allocateDirect(headerSize);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(numberOfRows).putInt(columns.size());
+        long offset = headerSize;
+        for (int i = 0; i < columns.size(); i++) {
+            byte[] name = columns.get(i).name.getBytes(StandardCharsets.UTF_8);
+            header.putShort((short) name.length).put(name);
+            header.put((byte) columns.get(i).encoding.ordinal());
+            header.putLong(offset).putLong(data.get(i).remaining());
+            offset += data.get(i).remaining();
+        }
+        header.flip();
+
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(out, header);
+            for (ByteBuffer buffer : data) {
+                writeFully(out, buffer);
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    /**
+     * Encodes the values of one column into a direct buffer, as they are added.
+     */
+    private static class ColumnWriter {
+        private final String name;
+        private final Encoding encoding;
+        private ByteBuffer buffer = ByteBuffer.allocateDirect(1024);
+        private final Map<String, Integer> dictionary = new LinkedHashMap<>();
+        private int runValue;
+        private int runLength;
+
+        private ColumnWriter(String name, Encoding encoding) {
+            this.name = name;
+            this.encoding = encoding;
+        }
+
+        private void add(String value) {
+            add(dictionary.computeIfAbsent(value, entry -> dictionary.size()));
+        }
+
+        private void add(int value) {
+            if (encoding == Encoding.PLAIN) {
+                ensureCapacity(Integer.BYTES).putInt(value);
+            } else if (runLength > 0 && value == runValue) {
+                runLength++;
+            } else {
+                endRun();
+                runValue = value;
+                runLength = 1;
+            }
+        }
+
+        private void endRun() {
+            if (runLength > 0) {
+                ensureCapacity(2 * Integer.BYTES).putInt(runValue).putInt(runLength);
+            }
+        }
+
+        private ByteBuffer ensureCapacity(int bytes) {
+            if (buffer.remaining() < bytes) {
+                ByteBuffer larger = ByteBuffer.allocateDirect(2 * buffer.capacity());
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+            return buffer;
+        }
+
+        /**
+         * @return  the encoded column, ready to be written
+         */
+        private ByteBuffer finish() {
+            if (encoding != Encoding.PLAIN) {
+                endRun();
+            }
+            buffer.flip();
+            if (encoding != Encoding.DICTIONARY) {
+                return buffer;
+            }
+
+            int size = Integer.BYTES + buffer.remaining();
+            List<byte[]> entries = new ArrayList<>();
+            for (String entry : dictionary.keySet()) {
+                byte[] bytes = entry.getBytes(StandardCharsets.UTF_8);
+                entries.add(bytes);
+                size += Short.BYTES + bytes.length;
+            }
+            ByteBuffer column = ByteBuffer.allocateDirect(size);
+            column.putInt(entries.size());
+            for (byte[] entry : entries) {
+                column.putShort((short) entry.length).put(entry);
+            }
+            column.put(buffer).flip();
+            return column;
+        }
+    }
+
+    /**
+     * Opens a columnar file for reading, reading only its header
+     * @param file
+     * @return  the opened file
+     * @throws IOException  if the file cannot be read or is not a columnar file
+     */
+    public static FleetColumns open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(4 * Integer.BYTES);
+            readFully(channel, header, 0);
+            if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                throw new IOException(file + " is not a columnar fleet file");
+            }
+            int numberOfRows = header.getInt();
+            int numberOfColumns = header.getInt();
+
+            Map<String, ColumnEntry> directory = new LinkedHashMap<>();
+            long position = header.capacity();
+            ByteBuffer field = ByteBuffer.allocate(Short.BYTES);
+            for (int i = 0; i < numberOfColumns; i++) {
+                field.clear();
+                readFully(channel, field, position);
+                ByteBuffer entry = ByteBuffer.allocate(field.getShort() + 1 + 2 * Long.BYTES);
+                readFully(channel, entry, position + Short.BYTES);
+                position += Short.BYTES + entry.capacity();
+
+                byte[] name = new byte[entry.capacity() - 1 - 2 * Long.BYTES];
+                entry.get(name);
+                Encoding encoding = Encoding.values()[entry.get()];
+                directory.put(new String(name, StandardCharsets.UTF_8),
+                        new ColumnEntry(encoding, entry.getLong(), entry.getLong()));
+            }
+            return new FleetColumns(channel, numberOfRows, directory);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of the columnar fleet file");
+            }
+        }
+        buffer.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    public int getNumberOfRows() {
+        return numberOfRows;
+    }
+
+    /**
+     * @return  the names of the columns, in the order of the file
+     */
+    public List<String> getColumnNames() {
+        return Collections.unmodifiableList(new ArrayList<>(directory.keySet()));
+    }
+
+    /**
+     * Memory-maps a single column of the file
+     * @param name
+     * @return  the column
+     * @throws IOException
+     * @throws IllegalArgumentException if the file has no column with the given name
+     */
+    public Column column(String name) throws IOException {
+        ColumnEntry entry = directory.get(name);
+        if (entry == null) {
+            throw new IllegalArgumentException("No column " + name);
+        }
+        return new Column(entry.encoding, channel.map(FileChannel.MapMode.READ_ONLY, entry.offset, entry.length));
+    }
+
+    /**
+     * A memory-mapped column, of which the values are decoded while it is scanned.
+     * The values of a dictionary column are the numbers of its entries, see {@link #getDictionary()}.
+     */
+    public static class Column {
+        private final Encoding encoding;
+        private final MappedByteBuffer data;
+        private final List<String> dictionary = new ArrayList<>();
+        private final int dataStart;
+
+        private Column(Encoding encoding, MappedByteBuffer data) {
+            this.encoding = encoding;
+            this.data = data;
+            if (encoding == Encoding.DICTIONARY) {
+                int entries = data.getInt(0);
+                int position = Integer.BYTES;
+                for (int i = 0; i < entries; i++) {
+                    byte[] entry = new byte[data.getShort(position)];
+                    data.duplicate().position(position + Short.BYTES).get(entry);
+                    dictionary.add(new String(entry, StandardCharsets.UTF_8));
+                    position += Short.BYTES + entry.length;
+                }
+                dataStart = position;
+            } else {
+                dataStart = 0;
+            }
+        }
+
+        public Encoding getEncoding() {
+            return encoding;
+        }
+
+        /**
+         * @return  the entries of a dictionary column (empty for other columns)
+         */
+        public List<String> getDictionary() {
+            return Collections.unmodifiableList(dictionary);
+        }
+
+        /**
+         * Passes the value of every row to the consumer, in the order of the rows
+         * @param consumer
+         */
+        public void scan(IntConsumer consumer) {
+            int end = data.limit();
+            if (encoding == Encoding.PLAIN) {
+                for (int position = dataStart; position < end; position += Integer.BYTES) {
+                    consumer.accept(data.getInt(position));
+                }
+                return;
+            }
+
+            for (int position = dataStart; position < end; position += 2 * Integer.BYTES) {
+                int value = data.getInt(position);
+                for (int run = data.getInt(position + Integer.BYTES); run > 0; run--) {
+                    consumer.accept(value);
+                }
+            }
+        }
+
+        /**
+         * @return  the sum of the values of all rows, without decoding the runs
+         */
+        public long sum() {
+            long sum = 0;
+            int end = data.limit();
+            if (encoding == Encoding.PLAIN) {
+                for (int position = dataStart; position < end; position += Integer.BYTES) {
+                    sum += data.getInt(position);
+                }
+            } else {
+                for (int position = dataStart; position < end; position += 2 * Integer.BYTES) {
+                    sum += (long) data.getInt(position) * data.getInt(position + Integer.BYTES);
+                }
+            }
+            return sum;
+        }
+
+        /**
+         * @return  the number of rows of the column
+         */
+        public int size() {
+            if (encoding == Encoding.PLAIN) {
+                return (data.limit() - dataStart) / Integer.BYTES;
+            }
+
+            int size = 0;
+            for (int position = dataStart; position < data.limit(); position += 2 * Integer.BYTES) {
+                size += data.getInt(position + Integer.BYTES);
+            }
+            return size;
+        }
+
+        /**
+         * @return  the values of all rows
+         */
+        public int[] toArray() {
+            int[] values = new int[size()];
+            int[] index = new int[1];
+            scan(value -> values[index[0]++] = value);
+            return values;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package models;
 public class FreightWagon extends Wagon {
 
     private int maxWeight;
+    private int load;
 
     public FreightWagon(int wagonId, int maxWeight) {
         super(wagonId);
@@ -14,6 +15,83 @@ public class FreightWagon extends Wagon {
     }
 
     public void setMaxWeight(int maxWeight) {
+        changing();
+        if (getTrain() != null) {
+            getTrain().adjustTotals(0, maxWeight - this.maxWeight, 0);
+        }
         this.maxWeight = maxWeight;
+        changed();
+    }
+
+    /**
+     * @return  the weight currently loaded onto this wagon
+     */
+    public int getLoad() {
+        return load;
+    }
+
+    /**
+     * @return  the weight that can still be loaded onto this wagon
+     */
+    public int getRemainingCapacity() {
+        return maxWeight - load;
+    }
+
+    /**
+     * Adds the given weight to the load of this wagon, if it fits
+     * @param weight
+     * @return  whether the weight could be loaded
+     */
+    public boolean load(int weight) {
+        if (weight < 0 || weight > getRemainingCapacity()) {
+            return false;
+        }
+
+        changeLoad(weight);
+        return true;
+    }
+
+    /**
+     * Removes the given weight from the load of this wagon
+     * @param weight
+     * @return  whether the wagon carried at least that weight
+     */
+    public boolean unload(int weight) {
+        if (weight < 0 || weight > load) {
+            return false;
+        }
+
+        changeLoad(-weight);
+        return true;
+    }
+
+    /**
+     * Replaces the load of this wagon, without checking it against the maximum weight,
+     * to restore a recorded state of the wagon
+     * @param load
+     */
+    void setLoad(int load) {
+        changeLoad(load - this.load);
+    }
+
+    private void changeLoad(int delta) {
+        changing();
+        if (getTrain() != null) {
+            getTrain().adjustTotals(0, 0, delta);
+        }
+        this.load += delta;
+        changed();
+    }
+
+    @Override
+    public WagonType getType() {
+        return WagonType.FREIGHT;
+    }
+
+    @Override
+    Wagon copy() {
+        FreightWagon copy = new FreightWagon(id, maxWeight);
+        copy.load = load;
+        return copy;
     }
 }
@@ -0,0 +1,185 @@
+package models;
+
+/**
+ * A read-only view of a train whose wagons are stored in a {@link WagonArena}.
+ * It offers the queries of {@link Train}, and does not change when the original train changes.
+ */
+public class FrozenTrain {
+    private final WagonArena arena;
+    private final String origin;
+    private final String destination;
+    private final int locNumber;
+    private final int maxWagons;
+    private final int head;
+    private final int tail;
+    private final int numberOfWagons;
+    private final WagonType type;
+
+    FrozenTrain(WagonArena arena, Train train, int head, int tail) {
+        this.arena = arena;
+        this.origin = train.getOrigin();
+        this.destination = train.getDestination();
+        this.locNumber = train.getEngine().getLocNumber();
+        this.maxWagons = train.getEngine().getMaxWagons();
+        this.head = head;
+        this.tail = tail;
+        this.numberOfWagons = train.getNumberOfWagons();
+        this.type = train.getType();
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    public int getLocNumber() {
+        return locNumber;
+    }
+
+    public int getMaxWagons() {
+        return maxWagons;
+    }
+
+    public int getNumberOfWagons() {
+        return numberOfWagons;
+    }
+
+    public boolean hasWagons() {
+        return numberOfWagons > 0;
+    }
+
+    public boolean isPassengerTrain() {
+        return type == WagonType.PASSENGER;
+    }
+
+    public boolean isFreightTrain() {
+        return type == WagonType.FREIGHT;
+    }
+
+    public int getTotalNumberOfSeats() {
+        int seats = 0;
+        for (int slot = head; slot != WagonArena.NONE; slot = arena.nextOf(slot)) {
+            seats += WagonArena.seatsOf(arena.attributesAt(slot));
+        }
+        return seats;
+    }
+
+    public long getTotalMaxWeight() {
+        long weight = 0;
+        for (int slot = head; slot != WagonArena.NONE; slot = arena.nextOf(slot)) {
+            weight += WagonArena.maxWeightOf(arena.attributesAt(slot));
+        }
+        return weight;
+    }
+
+    public long getTotalLoad() {
+        long load = 0;
+        for (int slot = head; slot != WagonArena.NONE; slot = arena.nextOf(slot)) {
+            load += arena.loadAt(slot);
+        }
+        return load;
+    }
+
+    /**
+     * @param position  starting at 1 for the first wagon of the train
+     * @return  the id of the wagon at the given position
+     * @throws IndexOutOfBoundsException if the position is not valid for this train
+     */
+    public int getWagonIdAtPosition(int position) {
+        return arena.idAt(slotAtPosition(position));
+    }
+
+    /**
+     * @param position  starting at 1 for the first wagon of the train
+     * @return  the packed attribute word of the wagon at the given position, see {@link WagonArena#pack}
+     * @throws IndexOutOfBoundsException if the position is not valid for this train
+     */
+    public long getAttributesAtPosition(int position) {
+        return arena.attributesAt(slotAtPosition(position));
+    }
+
+    /**
+     * @param wagonId
+     * @return  the position of the wagon with the given id, or 0 if it is not part of this train
+     */
+    public int findPositionById(int wagonId) {
+        int position = 1;
+        for (int slot = head; slot != WagonArena.NONE; slot = arena.nextOf(slot)) {
+            if (arena.idAt(slot) == wagonId) {
+                return position;
+            }
+            position++;
+        }
+        return 0;
+    }
+
+    private int slotAtPosition(int position) {
+        if (position < 1 || position > numberOfWagons) {
+            throw new IndexOutOfBoundsException("Position " + position + " is not valid for a train of " + numberOfWagons + " wagons");
+        }
+        if (position == numberOfWagons) {
+            return tail;
+        }
+
+        int slot = head;
+        for (int i = 1; i < position; i++) {
+            slot = arena.nextOf(slot);
+        }
+        return slot;
+    }
+
+    /**
+     * @return  a new, changeable train with new wagons and a new locomotive, equal to this view
+     */
+    public Train thaw() {
+        Train train = new Train(new Locomotive(locNumber, maxWagons), origin, destination);
+        Wagon first = null;
+        Wagon last = null;
+        for (int slot = head; slot != WagonArena.NONE; slot = arena.nextOf(slot)) {
+            long attributes = arena.attributesAt(slot);
+            Wagon wagon;
+            if (WagonArena.typeOf(attributes) == WagonType.PASSENGER) {
+                wagon = new PassengerWagon(arena.idAt(slot), WagonArena.seatsOf(attributes));
+            } else {
+                FreightWagon freightWagon = new FreightWagon(arena.idAt(slot), (int) WagonArena.maxWeightOf(attributes));
+                freightWagon.setLoad(arena.loadAt(slot));
+                wagon = freightWagon;
+            }
+            if (first == null) {
+                first = wagon;
+            } else {
+                last.attachTail(wagon);
+            }
+            last = wagon;
+        }
+        train.setFirstWagon(first);
+        return train;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder stringBuilder = new StringBuilder();
+
+        stringBuilder.append("[Loc-").append(locNumber).append("]");
+        if (head != WagonArena.NONE) {
+            for (int slot = head; slot != WagonArena.NONE; slot = arena.nextOf(slot)) {
+                stringBuilder.append("[Wagon-").append(arena.idAt(slot)).append("]");
+            }
+            stringBuilder.append(" ");
+        }
+
+        stringBuilder.append("with ")
+                .append(numberOfWagons)
+                .append(" wagons from ")
+                .append(origin)
+                .append(" to ")
+                .append(destination);
+
+        stringBuilder.append("\n").append("Total number of seats: ").append(getTotalNumberOfSeats());
+
+        return stringBuilder.toString();
+    }
+}
@@ -0,0 +1,166 @@
+package models;
+
+import java.util.Arrays;
+
+/**
+ * A set of primitive int values, such as wagon ids, without boxing.
+ * Open addressing with linear probing in a power-of-two table, kept at most half full.
+ */
+public class IntHashSet {
+    // the value 0 marks a free slot, so 0 itself is tracked separately
+    private static final int FREE = 0;
+
+    private int[] slots;
+    private int size;
+    private boolean containsFree;
+
+    public IntHashSet() {
+        this(16);
+    }
+
+    public IntHashSet(int expectedSize) {
+        slots = new int[tableSizeFor(expectedSize)];
+    }
+
+    public static IntHashSet of(int... values) {
+        IntHashSet set = new IntHashSet(values.length);
+        for (int value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int value) {
+        if (value == FREE) {
+            return containsFree;
+        }
+
+        int mask = slots.length - 1;
+        for (int slot = hash(value) & mask; slots[slot] != FREE; slot = (slot + 1) & mask) {
+            if (slots[slot] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param value
+     * @return  whether the value was added, i.e. it was not yet part of this set
+     */
+    public boolean add(int value) {
+        if (value == FREE) {
+            if (containsFree) {
+                return false;
+            }
+            containsFree = true;
+            size++;
+            return true;
+        }
+
+        int mask = slots.length - 1;
+        int slot = hash(value) & mask;
+        for (; slots[slot] != FREE; slot = (slot + 1) & mask) {
+            if (slots[slot] == value) {
+                return false;
+            }
+        }
+        slots[slot] = value;
+        size++;
+        if (2 * size > slots.length) {
+            rehash(slots.length * 2);
+        }
+        return true;
+    }
+
+    /**
+     * @param value
+     * @return  whether the value was removed, i.e. it was part of this set
+     */
+    public boolean remove(int value) {
+        if (value == FREE) {
+            if (!containsFree) {
+                return false;
+            }
+            containsFree = false;
+            size--;
+            return true;
+        }
+
+        int mask = slots.length - 1;
+        int slot = hash(value) & mask;
+        for (; slots[slot] != value; slot = (slot + 1) & mask) {
+            if (slots[slot] == FREE) {
+                return false;
+            }
+        }
+
+        // shift back the values that follow in the same run, so no probe sequence is broken
+        int gap = slot;
+        for (int next = (gap + 1) & mask; slots[next] != FREE; next = (next + 1) & mask) {
+            int home = hash(slots[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                slots[gap] = slots[next];
+                gap = next;
+            }
+        }
+        slots[gap] = FREE;
+        size--;
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(slots, FREE);
+        containsFree = false;
+        size = 0;
+    }
+
+    /**
+     * @return  the values of this set, in no particular order
+     */
+    public int[] toArray() {
+        int[] values = new int[size];
+        int index = 0;
+        if (containsFree) {
+            values[index++] = FREE;
+        }
+        for (int value : slots) {
+            if (value != FREE) {
+                values[index++] = value;
+            }
+        }
+        return values;
+    }
+
+    private void rehash(int capacity) {
+        int[] old = slots;
+        slots = new int[capacity];
+        int mask = capacity - 1;
+        for (int value : old) {
+            if (value != FREE) {
+                int slot = hash(value) & mask;
+                while (slots[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = value;
+            }
+        }
+    }
+
+    private static int hash(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        return Integer.highestOneBit(Math.max(expectedSize, 4) * 2 - 1) * 2;
+    }
+}
@@ -0,0 +1,131 @@
+package models;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.TreeSet;
+
+/**
+ * Places a batch of consignments onto the wagons of a freight train.
+ * Every consignment is loaded as a whole onto a single wagon.
+ *
+ * FIRST_FIT_DECREASING places the heaviest consignments first, each onto the first wagon
+ *      (from the front of the train) with enough remaining capacity,
+ *      found in O(log n) with a tree of the maximum remaining capacity per range of positions.
+ * BEST_FIT places the consignments in the given order, each onto the wagon with the least
+ *      remaining capacity that still fits it, found in O(log n) in a set ordered by remaining capacity.
+ */
+public class LoadAllocator {
+
+    public enum Strategy {
+        FIRST_FIT_DECREASING,
+        BEST_FIT
+    }
+
+    private final Strategy strategy;
+
+    public LoadAllocator(Strategy strategy) {
+        this.strategy = strategy;
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Loads the given consignments onto the wagons of the train
+     * @param train     a freight train
+     * @param weights   the weight of every consignment
+     * @return  for every consignment the wagon it has been loaded onto,
+     *          or null if no wagon had enough remaining capacity for it
+     */
+    public FreightWagon[] allocate(Train train, int[] weights) {
+        FreightWagon[] allocation = new FreightWagon[weights.length];
+        if (!train.isFreightTrain()) {
+            return allocation;
+        }
+
+        FreightWagon[] wagons = new FreightWagon[train.getNumberOfWagons()];
+        int position = 0;
+        for (Wagon wagon : train) {
+            wagons[position++] = (FreightWagon) wagon;
+        }
+
+        if (strategy == Strategy.FIRST_FIT_DECREASING) {
+            firstFitDecreasing(wagons, weights, allocation);
+        } else {
+            bestFit(wagons, weights, allocation);
+        }
+        return allocation;
+    }
+
+    private void firstFitDecreasing(FreightWagon[] wagons, int[] weights, FreightWagon[] allocation) {
+        Integer[] order = new Integer[weights.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt((Integer i) -> weights[i]).reversed());
+
+        // tree[node] holds the maximum remaining capacity of the wagons below that node
+        int leaves = Integer.highestOneBit(Math.max(wagons.length, 1) * 2 - 1);
+        int[] tree = new int[2 * leaves];
+        Arrays.fill(tree, Integer.MIN_VALUE);
+        for (int i = 0; i < wagons.length; i++) {
+            tree[leaves + i] = wagons[i].getRemainingCapacity();
+        }
+        for (int node = leaves - 1; node > 0; node--) {
+            tree[node] = Math.max(tree[2 * node], tree[2 * node + 1]);
+        }
+
+        for (int consignment : order) {
+            int weight = weights[consignment];
+            if (weight < 0 || tree[1] < weight) {
+                continue;
+            }
+
+            // descend to the leftmost wagon that fits
+            int node = 1;
+            while (node < leaves) {
+                node = tree[2 * node] >= weight ? 2 * node : 2 * node + 1;
+            }
+            FreightWagon wagon = wagons[node - leaves];
+            wagon.load(weight);
+            allocation[consignment] = wagon;
+
+            tree[node] = wagon.getRemainingCapacity();
+            for (node >>= 1; node > 0; node >>= 1) {
+                tree[node] = Math.max(tree[2 * node], tree[2 * node + 1]);
+            }
+        }
+    }
+
+    private void bestFit(FreightWagon[] wagons, int[] weights, FreightWagon[] allocation) {
+        // every key packs the remaining capacity of a wagon (high half) with its position (low half)
+        TreeSet<Long> byRemaining = new TreeSet<>();
+        for (int i = 0; i < wagons.length; i++) {
+            byRemaining.add(key(wagons[i], i));
+        }
+
+        for (int consignment = 0; consignment < weights.length; consignment++) {
+            int weight = weights[consignment];
+            if (weight < 0) {
+                continue;
+            }
+
+            Long found = byRemaining.ceiling((long) weight << 32);
+            if (found == null) {
+                continue;
+            }
+
+            byRemaining.remove(found);
+            int position = (int) (long) found;
+            FreightWagon wagon = wagons[position];
+            wagon.load(weight);
+            allocation[consignment] = wagon;
+            byRemaining.add(key(wagon, position));
+        }
+    }
+
+    private static long key(FreightWagon wagon, int position) {
+        return ((long) Math.max(wagon.getRemainingCapacity(), 0) << 32) | position;
+    }
+}
@@ -0,0 +1,286 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+/**
+ * Assigns the locomotives of a pool to a timetable of departures.
+ * A locomotive pulls one departure at a time, and is available again at the return time of that departure.
+ *
+ * The departures are planned in order of departure time. Every departure gets the available locomotive
+ * with the smallest capacity that can pull its wagons (best fit), which keeps idle capacity low.
+ * Available locomotives are kept in a set ordered by capacity, busy locomotives in a queue ordered
+ * by the time they become available, so planning takes O(n log n) for n departures.
+ *
+ * When a locomotive drops out, only the departures from that time on are planned again.
+ * Each of them keeps its former locomotive whenever that one is still available, and a replacement
+ * is preferably a locomotive that is not planned again before the departure returns,
+ * so the reassignments do not cascade through the rest of the day.
+ */
+public class LocomotiveScheduler {
+
+    /**
+     * A departure that needs a locomotive from its departure time until its return time.
+     */
+    public static class Departure {
+        private final int id;
+        private final int departureTime;
+        private final int returnTime;
+        private final int requiredWagons;
+
+        public Departure(int id, int departureTime, int returnTime, int requiredWagons) {
+            if (returnTime < departureTime || requiredWagons < 0) {
+                throw new IllegalArgumentException("Departure " + id + " returns before it departs or has a negative number of wagons");
+            }
+            this.id = id;
+            this.departureTime = departureTime;
+            this.returnTime = returnTime;
+            this.requiredWagons = requiredWagons;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public int getDepartureTime() {
+            return departureTime;
+        }
+
+        public int getReturnTime() {
+            return returnTime;
+        }
+
+        public int getRequiredWagons() {
+            return requiredWagons;
+        }
+
+        @Override
+        public String toString() {
+            return "Departure-" + id + " at " + departureTime;
+        }
+    }
+
+    private static final int NONE = -1;
+    private static final int MAX_CANDIDATES = 256;
+
+    private final Locomotive[] locomotives;
+    private final Map<Locomotive, Integer> locomotiveIndexes = new IdentityHashMap<>();
+    private final boolean[] droppedOut;
+
+    private Departure[] departures = new Departure[0];
+    private final Map<Integer, Integer> departureIndexes = new HashMap<>();
+    // for every departure (in order of departure time) the index of its locomotive, or NONE
+    private int[] assignments = new int[0];
+
+    public LocomotiveScheduler(Collection<Locomotive> pool) {
+        locomotives = pool.toArray(new Locomotive[0]);
+        droppedOut = new boolean[locomotives.length];
+        for (int i = 0; i < locomotives.length; i++) {
+            locomotiveIndexes.put(locomotives[i], i);
+        }
+    }
+
+    /**
+     * Plans the given timetable, replacing any earlier plan
+     * @param timetable departures with unique ids
+     */
+    public void plan(Collection<Departure> timetable) {
+        departures = timetable.toArray(new Departure[0]);
+        Arrays.sort(departures, Comparator.comparingInt(Departure::getDepartureTime).thenComparingInt(Departure::getId));
+        departureIndexes.clear();
+        for (int i = 0; i < departures.length; i++) {
+            if (departureIndexes.put(departures[i].getId(), i) != null) {
+                throw new IllegalArgumentException("Departure " + departures[i].getId() + " appears more than once");
+            }
+        }
+
+        assignments = new int[departures.length];
+        Arrays.fill(assignments, NONE);
+        planFrom(0);
+    }
+
+    /**
+     * Takes a locomotive out of service from the given time, and plans the departures from then on again.
+     * Departures before that time keep their locomotive.
+     * @param locomotive
+     * @param time
+     * @return  the number of departures that got another locomotive (or none anymore)
+     */
+    public int dropOut(Locomotive locomotive, int time) {
+        Integer index = locomotiveIndexes.get(locomotive);
+        if (index == null) {
+            throw new IllegalArgumentException("Locomotive " + locomotive.getLocNumber() + " is not part of the pool");
+        }
+        droppedOut[index] = true;
+
+        int first = 0;
+        while (first < departures.length && departures[first].getDepartureTime() < time) {
+            first++;
+        }
+
+        int[] former = Arrays.copyOfRange(assignments, first, assignments.length);
+        planFrom(first);
+
+        int reassigned = 0;
+        for (int i = first; i < assignments.length; i++) {
+            if (assignments[i] != former[i - first]) {
+                reassigned++;
+            }
+        }
+        return reassigned;
+    }
+
+    /**
+     * Plans the departures from the given index on, keeping the assignments before it,
+     * and preferring the current assignment of every departure if its locomotive is available.
+     */
+    private void planFrom(int first) {
+        int startTime = first < departures.length ? departures[first].getDepartureTime() : Integer.MAX_VALUE;
+
+        // the time at which every locomotive becomes available after the kept assignments
+        int[] availableAt = new int[locomotives.length];
+        Arrays.fill(availableAt, Integer.MIN_VALUE);
+        for (int i = 0; i < first; i++) {
+            if (assignments[i] != NONE) {
+                availableAt[assignments[i]] = Math.max(availableAt[assignments[i]], departures[i].getReturnTime());
+            }
+        }
+
+        // idle locomotives by (capacity, index), busy locomotives by (available time, index)
+        TreeSet<Long> idle = new TreeSet<>();
+        PriorityQueue<Long> busy = new PriorityQueue<>();
+        for (int l = 0; l < locomotives.length; l++) {
+            if (droppedOut[l]) {
+                continue;
+            }
+            if (availableAt[l] <= startTime) {
+                idle.add(idleKey(l));
+            } else {
+                busy.add(pack(availableAt[l], l));
+            }
+        }
+
+        // the next departure of every locomotive in the current plan, to avoid taking a locomotive
+        // away from a later departure when a replacement is needed
+        int[] nextOfSameLocomotive = new int[departures.length];
+        int[] nextUse = new int[locomotives.length];
+        Arrays.fill(nextUse, NONE);
+        for (int i = departures.length - 1; i >= first; i--) {
+            if (assignments[i] != NONE) {
+                nextOfSameLocomotive[i] = nextUse[assignments[i]];
+                nextUse[assignments[i]] = i;
+            }
+        }
+
+        for (int i = first; i < departures.length; i++) {
+            Departure departure = departures[i];
+            while (!busy.isEmpty() && (int) (busy.peek() >> 32) <= departure.getDepartureTime()) {
+                idle.add(idleKey((int) (long) busy.poll()));
+            }
+
+            int current = assignments[i];
+            if (current != NONE) {
+                nextUse[current] = nextOfSameLocomotive[i];
+            }
+            int chosen = NONE;
+            if (current != NONE && !droppedOut[current]
+                    && locomotives[current].getMaxWagons() >= departure.getRequiredWagons()
+                    && idle.remove(idleKey(current))) {
+                chosen = current;
+            } else {
+                chosen = replacement(idle, nextUse, departure);
+            }
+
+            assignments[i] = chosen;
+            if (chosen != NONE) {
+                busy.add(pack(departure.getReturnTime(), chosen));
+            }
+        }
+    }
+
+    /**
+     * Takes the smallest idle locomotive that fits the departure, and is not planned for another departure
+     * before this one returns. If the first candidates all are, it takes the smallest one that fits.
+     * @return  the locomotive taken, or NONE if none fits
+     */
+    private int replacement(TreeSet<Long> idle, int[] nextUse, Departure departure) {
+        Long best = null;
+        int candidates = 0;
+        for (Long key : idle.tailSet(pack(departure.getRequiredWagons(), 0))) {
+            if (best == null) {
+                best = key;
+            }
+            int next = nextUse[(int) (long) key];
+            if (next == NONE || departures[next].getDepartureTime() >= departure.getReturnTime()) {
+                best = key;
+                break;
+            }
+            if (++candidates == MAX_CANDIDATES) {
+                break;
+            }
+        }
+        if (best == null) {
+            return NONE;
+        }
+        idle.remove(best);
+        return (int) (long) best;
+    }
+
+    private long idleKey(int locomotive) {
+        return pack(locomotives[locomotive].getMaxWagons(), locomotive);
+    }
+
+    /**
+     * @return  a key ordered by high, then by low, given a non-negative low
+     */
+    private static long pack(int high, int low) {
+        return ((long) high << 32) | low;
+    }
+
+    /**
+     * @param departure
+     * @return  the locomotive assigned to the departure, or null if none could be assigned
+     */
+    public Locomotive getLocomotive(Departure departure) {
+        Integer index = departureIndexes.get(departure.getId());
+        if (index == null || assignments[index] == NONE) {
+            return null;
+        }
+        return locomotives[assignments[index]];
+    }
+
+    /**
+     * @return  the departures without a locomotive, in order of departure time
+     */
+    public List<Departure> getUnassignedDepartures() {
+        List<Departure> unassigned = new ArrayList<>();
+        for (int i = 0; i < departures.length; i++) {
+            if (assignments[i] == NONE) {
+                unassigned.add(departures[i]);
+            }
+        }
+        return Collections.unmodifiableList(unassigned);
+    }
+
+    /**
+     * @return  the total number of wagons that the assigned locomotives could pull in addition
+     */
+    public long getIdleCapacity() {
+        long idleCapacity = 0;
+        for (int i = 0; i < departures.length; i++) {
+            if (assignments[i] != NONE) {
+                idleCapacity += locomotives[assignments[i]].getMaxWagons() - departures[i].getRequiredWagons();
+            }
+        }
+        return idleCapacity;
+    }
+}
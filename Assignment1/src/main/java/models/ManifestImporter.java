@@ -0,0 +1,494 @@
+package models;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Reads a fleet manifest, a text file with one wagon per line:
+ *      trainId, locNumber, maxWagons, origin, destination, wagonId, type, seats|weight
+ * where type is passenger (P) or freight (F), followed by the number of seats or the maximum weight.
+ * The locomotive and route of a train are taken from its first line, and must be the same on its other lines.
+ *
+ * The file is memory-mapped in chunks of whole lines, which are parsed in parallel
+ * directly from the mapped bytes; only the origin and destination of every train become Strings.
+ * The parsed wagons are then linked in the order of the file, and every train is attached at once.
+ * Malformed lines, and wagons that cannot be attached (an incompatible type, a duplicate id,
+ * or a locomotive without capacity), are reported as problems instead.
+ */
+public class ManifestImporter {
+    private static final String[] FIELD_NAMES =
+            {"trainId", "locNumber", "maxWagons", "origin", "destination", "wagonId", "type", "seats|weight"};
+    private static final long INVALID = Long.MIN_VALUE;
+    // the names and initials of the wagon types in upper case, by ordinal
+    private static final byte[][] TYPE_NAMES = new byte[WagonType.values().length][];
+    private static final byte[] TYPE_INITIALS = new byte[WagonType.values().length];
+
+    static {
+        for (WagonType type : WagonType.values()) {
+            TYPE_NAMES[type.ordinal()] = type.name().getBytes(StandardCharsets.US_ASCII);
+            TYPE_INITIALS[type.ordinal()] = TYPE_NAMES[type.ordinal()][0];
+        }
+    }
+
+    // the layout of a parsed wagon in the records of a chunk
+    private static final int LINE = 0;
+    private static final int TRAIN_ID = 1;
+    private static final int LOC_NUMBER = 2;
+    private static final int MAX_WAGONS = 3;
+    private static final int ORIGIN_START = 4;
+    private static final int ORIGIN_END = 5;
+    private static final int DESTINATION_START = 6;
+    private static final int DESTINATION_END = 7;
+    private static final int WAGON_ID = 8;
+    private static final int TYPE = 9;
+    private static final int VALUE = 10;
+    private static final int STRIDE = 11;
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    public ManifestImporter() {
+        this(ForkJoinPool.commonPool(), 16 * 1024 * 1024);
+    }
+
+    /**
+     * @param pool      the pool that parses the chunks
+     * @param chunkSize the minimum number of bytes of every chunk (but the last)
+     */
+    public ManifestImporter(ForkJoinPool pool, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("The chunk size must be positive");
+        }
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * A line of the manifest that could not be imported.
+     */
+    public static class Problem {
+        private final long lineNumber;
+        private final String message;
+
+        private Problem(long lineNumber, String message) {
+            this.lineNumber = lineNumber;
+            this.message = message;
+        }
+
+        /**
+         * @return  the number of the line, starting at 1
+         */
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "line " + lineNumber + ": " + message;
+        }
+    }
+
+    /**
+     * The trains of an imported manifest, and the problems found in it.
+     */
+    public static class Result {
+        private final Map<Integer, Train> trains = new LinkedHashMap<>();
+        private final List<Problem> problems = new ArrayList<>();
+
+        /**
+         * @return  all trains by their train id, in the order of the manifest
+         */
+        public Map<Integer, Train> getTrains() {
+            return Collections.unmodifiableMap(trains);
+        }
+
+        public Train getTrain(int trainId) {
+            return trains.get(trainId);
+        }
+
+        /**
+         * @return  the problems, by ascending line number
+         */
+        public List<Problem> getProblems() {
+            return Collections.unmodifiableList(problems);
+        }
+
+        public boolean hasProblems() {
+            return !problems.isEmpty();
+        }
+    }
+
+    /**
+     * The wagons parsed from one chunk of the manifest.
+     */
+    private static class Chunk {
+        private final ByteBuffer bytes;
+        private int[] records = new int[64 * STRIDE];
+        private int size;
+        private int lines;
+        private final List<Problem> problems = new ArrayList<>();
+
+        private Chunk(ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+
+        private int add() {
+            if ((size + 1) * STRIDE > records.length) {
+                records = Arrays.copyOf(records, 2 * records.length);
+            }
+            return size++ * STRIDE;
+        }
+    }
+
+    /**
+     * A train of which the wagons are being linked.
+     */
+    private static class PendingTrain {
+        private final Train train;
+        // the route as it is written in the manifest, to compare the other lines of the train with
+        private final byte[] origin;
+        private final byte[] destination;
+        private Wagon head;
+        private Wagon tail;
+        private int numberOfWagons;
+        private WagonType type;
+
+        private PendingTrain(Train train) {
+            this.train = train;
+            this.origin = train.getOrigin().getBytes(StandardCharsets.UTF_8);
+            this.destination = train.getDestination().getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Imports the manifest in the given file
+     * @param file
+     * @return  the trains and the problems found
+     * @throws IOException
+     */
+    public Result read(Path file) throws IOException {
+        List<MappedByteBuffer> buffers = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long start = 0;
+            while (start < size) {
+                long end = start + chunkSize >= size ? size : nextLineStart(channel, start + chunkSize, size);
+                buffers.add(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+                start = end;
+            }
+        }
+
+        // the mappings remain valid after the channel has been closed
+        List<ForkJoinTask<Chunk>> tasks = new ArrayList<>(buffers.size());
+        for (MappedByteBuffer buffer : buffers) {
+            tasks.add(pool.submit(() -> parse(buffer)));
+        }
+
+        Result result = new Result();
+        Map<Integer, PendingTrain> pendingTrains = new LinkedHashMap<>();
+        IntHashSet wagonIds = new IntHashSet();
+        long firstLine = 0;
+        for (ForkJoinTask<Chunk> task : tasks) {
+            Chunk chunk = task.join();
+            for (Problem problem : chunk.problems) {
+                result.problems.add(new Problem(firstLine + problem.lineNumber, problem.message));
+            }
+            link(chunk, firstLine, pendingTrains, wagonIds, result);
+            firstLine += chunk.lines;
+        }
+
+        for (Map.Entry<Integer, PendingTrain> entry : pendingTrains.entrySet()) {
+            PendingTrain pending = entry.getValue();
+            if (pending.head != null) {
+                pending.train.setFirstWagon(pending.head);
+            }
+            result.trains.put(entry.getKey(), pending.train);
+        }
+        result.problems.sort(Comparator.comparingLong(Problem::getLineNumber));
+        return result;
+    }
+
+    /**
+     * @return  the position after the first line end at or after the given position,
+     *          or the size of the file if there is none
+     */
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Parses the lines of a chunk, without creating any objects per line (except for problems).
+     */
+    private static Chunk parse(ByteBuffer bytes) {
+        Chunk chunk = new Chunk(bytes);
+        int[] fieldStarts = new int[FIELD_NAMES.length];
+        int[] fieldEnds = new int[FIELD_NAMES.length];
+
+        int position = 0;
+        int limit = bytes.limit();
+        while (position < limit) {
+            int end = position;
+            while (end < limit && bytes.get(end) != '\n') {
+                end++;
+            }
+            chunk.lines++;
+            parseLine(chunk, position, end, fieldStarts, fieldEnds);
+            position = end + 1;
+        }
+        return chunk;
+    }
+
+    private static void parseLine(Chunk chunk, int start, int end, int[] fieldStarts, int[] fieldEnds) {
+        ByteBuffer bytes = chunk.bytes;
+        int line = chunk.lines;
+
+        int fields = 0;
+        int fieldStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || bytes.get(i) == ',') {
+                if (fields < FIELD_NAMES.length) {
+                    fieldStarts[fields] = skipSpaces(bytes, fieldStart, i);
+                    fieldEnds[fields] = trimSpaces(bytes, fieldStarts[fields], i);
+                }
+                fields++;
+                fieldStart = i + 1;
+            }
+        }
+
+        if (fields == 1 && fieldStarts[0] == fieldEnds[0]) {
+            // a blank line
+            return;
+        }
+        if (fields != FIELD_NAMES.length) {
+            chunk.problems.add(new Problem(line,
+                    "expected " + FIELD_NAMES.length + " fields but found " + fields));
+            return;
+        }
+
+        long trainId = parseNumber(bytes, fieldStarts[0], fieldEnds[0]);
+        long locNumber = parseNumber(bytes, fieldStarts[1], fieldEnds[1]);
+        long maxWagons = parseNumber(bytes, fieldStarts[2], fieldEnds[2]);
+        long wagonId = parseNumber(bytes, fieldStarts[5], fieldEnds[5]);
+        long value = parseNumber(bytes, fieldStarts[7], fieldEnds[7]);
+        int type = parseType(bytes, fieldStarts[6], fieldEnds[6]);
+
+        String invalid = trainId == INVALID ? FIELD_NAMES[0]
+                : locNumber == INVALID ? FIELD_NAMES[1]
+                : maxWagons == INVALID ? FIELD_NAMES[2]
+                : fieldStarts[3] == fieldEnds[3] ? FIELD_NAMES[3]
+                : fieldStarts[4] == fieldEnds[4] ? FIELD_NAMES[4]
+                : wagonId == INVALID ? FIELD_NAMES[5]
+                : type < 0 ? FIELD_NAMES[6]
+                : value == INVALID ? FIELD_NAMES[7]
+                : null;
+        if (invalid != null) {
+            chunk.problems.add(new Problem(line, "invalid " + invalid));
+            return;
+        }
+
+        int record = chunk.add();
+        int[] records = chunk.records;
+        records[record + LINE] = line;
+        records[record + TRAIN_ID] = (int) trainId;
+        records[record + LOC_NUMBER] = (int) locNumber;
+        records[record + MAX_WAGONS] = (int) maxWagons;
+        records[record + ORIGIN_START] = fieldStarts[3];
+        records[record + ORIGIN_END] = fieldEnds[3];
+        records[record + DESTINATION_START] = fieldStarts[4];
+        records[record + DESTINATION_END] = fieldEnds[4];
+        records[record + WAGON_ID] = (int) wagonId;
+        records[record + TYPE] = type;
+        records[record + VALUE] = (int) value;
+    }
+
+    /**
+     * Links the wagons parsed from a chunk to their trains, in the order of the manifest.
+     */
+    private static void link(Chunk chunk, long firstLine, Map<Integer, PendingTrain> pendingTrains,
+                             IntHashSet wagonIds, Result result) {
+        int[] records = chunk.records;
+        for (int record = 0; record < chunk.size * STRIDE; record += STRIDE) {
+            long line = firstLine + records[record + LINE];
+            int trainId = records[record + TRAIN_ID];
+            int wagonId = records[record + WAGON_ID];
+            WagonType type = WagonType.values()[records[record + TYPE]];
+
+            PendingTrain pending = pendingTrains.get(trainId);
+            if (pending == null) {
+                Locomotive engine = new Locomotive(records[record + LOC_NUMBER], records[record + MAX_WAGONS]);
+                pending = new PendingTrain(new Train(engine,
+                        string(chunk.bytes, records[record + ORIGIN_START], records[record + ORIGIN_END]),
+                        string(chunk.bytes, records[record + DESTINATION_START], records[record + DESTINATION_END])));
+                pendingTrains.put(trainId, pending);
+            }
+
+            Locomotive engine = pending.train.getEngine();
+            String problem = null;
+            if (engine.getLocNumber() != records[record + LOC_NUMBER]
+                    || engine.getMaxWagons() != records[record + MAX_WAGONS]) {
+                problem = "train " + trainId + " is pulled by locomotive " + engine.getLocNumber()
+                        + " for " + engine.getMaxWagons() + " wagons, not by " + records[record + LOC_NUMBER]
+                        + " for " + records[record + MAX_WAGONS];
+            } else if (!equalsBytes(chunk.bytes, records[record + ORIGIN_START], records[record + ORIGIN_END], pending.origin)
+                    || !equalsBytes(chunk.bytes, records[record + DESTINATION_START], records[record + DESTINATION_END], pending.destination)) {
+                problem = "train " + trainId + " runs from " + pending.train.getOrigin() + " to " + pending.train.getDestination()
+                        + ", not from " + string(chunk.bytes, records[record + ORIGIN_START], records[record + ORIGIN_END])
+                        + " to " + string(chunk.bytes, records[record + DESTINATION_START], records[record + DESTINATION_END]);
+            } else if (pending.type != null && pending.type != type) {
+                problem = "wagon " + wagonId + " is not a " + pending.type + " wagon like the others of train " + trainId;
+            } else if (pending.numberOfWagons >= engine.getMaxWagons()) {
+                problem = "locomotive " + engine.getLocNumber() + " of train " + trainId
+                        + " cannot pull more than " + engine.getMaxWagons() + " wagons";
+            } else if (!wagonIds.add(wagonId)) {
+                problem = "wagon " + wagonId + " appears more than once";
+            }
+            if (problem != null) {
+                result.problems.add(new Problem(line, problem + ", wagon " + wagonId + " not attached"));
+                continue;
+            }
+
+            Wagon wagon = type == WagonType.PASSENGER
+                    ? new PassengerWagon(wagonId, records[record + VALUE])
+                    : new FreightWagon(wagonId, records[record + VALUE]);
+            if (pending.head == null) {
+                pending.head = wagon;
+            } else {
+                pending.tail.attachTail(wagon);
+            }
+            pending.tail = wagon;
+            pending.numberOfWagons++;
+            pending.type = type;
+        }
+    }
+
+    private static int skipSpaces(ByteBuffer bytes, int start, int end) {
+        while (start < end && isSpace(bytes.get(start))) {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimSpaces(ByteBuffer bytes, int start, int end) {
+        while (end > start && isSpace(bytes.get(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    /**
+     * @return  the non-negative int written in the given bytes, or INVALID
+     */
+    private static long parseNumber(ByteBuffer bytes, int start, int end) {
+        if (start == end) {
+            return INVALID;
+        }
+
+        long number = 0;
+        for (int i = start; i < end; i++) {
+            int digit = bytes.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID;
+            }
+            number = 10 * number + digit;
+            if (number > Integer.MAX_VALUE) {
+                return INVALID;
+            }
+        }
+        return number;
+    }
+
+    /**
+     * @return  the ordinal of the WagonType written in the given bytes, or -1
+     */
+    private static int parseType(ByteBuffer bytes, int start, int end) {
+        if (end - start == 1) {
+            byte initial = toUpperCase(bytes.get(start));
+            for (int type = 0; type < TYPE_INITIALS.length; type++) {
+                if (TYPE_INITIALS[type] == initial) {
+                    return type;
+                }
+            }
+            return -1;
+        }
+
+        for (int type = 0; type < TYPE_NAMES.length; type++) {
+            if (equalsIgnoreCase(bytes, start, end, TYPE_NAMES[type])) {
+                return type;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param word  in upper case
+     */
+    private static boolean equalsIgnoreCase(ByteBuffer bytes, int start, int end, byte[] word) {
+        if (end - start != word.length) {
+            return false;
+        }
+        for (int i = 0; i < word.length; i++) {
+            if (toUpperCase(bytes.get(start + i)) != word[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte toUpperCase(byte b) {
+        return b >= 'a' && b <= 'z' ? (byte) (b - ('a' - 'A')) : b;
+    }
+
+    private static boolean equalsBytes(ByteBuffer bytes, int start, int end, byte[] word) {
+        if (end - start != word.length) {
+            return false;
+        }
+        for (int i = 0; i < word.length; i++) {
+            if (bytes.get(start + i) != word[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String string(ByteBuffer bytes, int start, int end) {
+        byte[] text = new byte[end - start];
+        bytes.duplicate().position(start).get(text);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+}
@@ -10,10 +10,25 @@ public class PassengerWagon extends Wagon {
     }
 
     public void setNumberOfSeats(int numberOfSeats) {
+        changing();
+        if (getTrain() != null) {
+            getTrain().adjustTotals(numberOfSeats - this.numberOfSeats, 0, 0);
+        }
         this.numberOfSeats = numberOfSeats;
+        changed();
     }
 
     public int getNumberOfSeats() {
         return this.numberOfSeats;
     }
+
+    @Override
+    public WagonType getType() {
+        return WagonType.PASSENGER;
+    }
+
+    @Override
+    Wagon copy() {
+        return new PassengerWagon(id, numberOfSeats);
+    }
 }
@@ -0,0 +1,258 @@
+package models;
+
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Books seats in passenger wagons, safely from any number of threads.
+ * The reserved seats of every wagon are kept in a lock-free bit set,
+ * created with the number of seats of the wagon at its first booking
+ * and grown at the next booking after the wagon has got more seats.
+ * Seats are numbered from 1 within each wagon.
+ *
+ * Reservations belong to the wagon, not to its train,
+ * so they move along when a wagon is moved to another train.
+ * The engine listens to the trains of the booked wagons: the reservations of a wagon that has left its train
+ * without joining another one are dropped at the next call of the engine.
+ * Searches over a train read its wagons without copying or relinking them, also for a fork or a reversed train,
+ * but must not run concurrently with changes of the wagons of that train.
+ */
+public class ReservationEngine {
+    private final ConcurrentMap<PassengerWagon, SeatBitSet> seatMaps = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Train, BookedWagons> trains = new ConcurrentHashMap<>();
+    // wagons that have left the train they were booked in, to be dropped or followed to their new train
+    private final Queue<PassengerWagon> departedWagons = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The booked wagons of one train, as a listener of that train
+     */
+    private class BookedWagons implements TrainListener {
+        private final Train train;
+        private final Set<PassengerWagon> wagons = ConcurrentHashMap.newKeySet();
+
+        private BookedWagons(Train train) {
+            this.train = train;
+        }
+
+        /**
+         * Only notes the wagons that left, since they may be on their way to another train.
+         */
+        @Override
+        public void wagonsRemoved(Train train, int position, int count) {
+            for (PassengerWagon wagon : wagons) {
+                if (wagon.getTrain() != train) {
+                    wagons.remove(wagon);
+                    departedWagons.add(wagon);
+                }
+            }
+        }
+
+        @Override
+        public void trainChanged(Train train) {
+            wagonsRemoved(train, 0, 0);
+        }
+
+        @Override
+        public void wagonChanged(Train train, Wagon wagon) {
+        }
+
+        @Override
+        public void wagonsInserted(Train train, int position, int[] wagonIds) {
+        }
+
+        @Override
+        public void trainReversed(Train train) {
+        }
+    }
+
+    /**
+     * A seat in a passenger wagon
+     */
+    public static class Seat {
+        private final PassengerWagon wagon;
+        private final int seatNumber;
+
+        private Seat(PassengerWagon wagon, int seatNumber) {
+            this.wagon = wagon;
+            this.seatNumber = seatNumber;
+        }
+
+        public PassengerWagon getWagon() {
+            return wagon;
+        }
+
+        public int getSeatNumber() {
+            return seatNumber;
+        }
+
+        @Override
+        public String toString() {
+            return wagon + " seat " + seatNumber;
+        }
+    }
+
+    private SeatBitSet seatMapOf(PassengerWagon wagon) {
+        settleDepartedWagons();
+        SeatBitSet seatMap = seatMaps.computeIfAbsent(wagon, key -> {
+            follow(key);
+            return new SeatBitSet(key.getNumberOfSeats());
+        });
+        if (seatMap.getCapacity() < wagon.getNumberOfSeats()) {
+            seatMap.grow(wagon.getNumberOfSeats());
+        }
+        return seatMap;
+    }
+
+    private SeatBitSet existingSeatMapOf(PassengerWagon wagon) {
+        settleDepartedWagons();
+        return seatMaps.get(wagon);
+    }
+
+    /**
+     * Listens to the train of a booked wagon, if it has one
+     */
+    private void follow(PassengerWagon wagon) {
+        Train train = wagon.getTrain();
+        if (train != null) {
+            trains.computeIfAbsent(train, key -> {
+                BookedWagons bookedWagons = new BookedWagons(key);
+                key.addListener(bookedWagons);
+                return bookedWagons;
+            }).wagons.add(wagon);
+        }
+    }
+
+    /**
+     * Drops the reservations of the wagons that have left their train, and follows the wagons
+     * that have joined another train. Trains without booked wagons are no longer listened to.
+     */
+    private void settleDepartedWagons() {
+        if (departedWagons.isEmpty()) {
+            return;
+        }
+
+        PassengerWagon wagon;
+        while ((wagon = departedWagons.poll()) != null) {
+            if (wagon.getTrain() == null) {
+                seatMaps.remove(wagon);
+            } else {
+                follow(wagon);
+            }
+        }
+        for (BookedWagons bookedWagons : trains.values()) {
+            if (bookedWagons.wagons.isEmpty() && trains.remove(bookedWagons.train, bookedWagons)) {
+                bookedWagons.train.removeListener(bookedWagons);
+            }
+        }
+    }
+
+    private int bookableSeats(PassengerWagon wagon, SeatBitSet seatMap) {
+        return Math.min(wagon.getNumberOfSeats(), seatMap.getCapacity());
+    }
+
+    private boolean isValid(PassengerWagon wagon, SeatBitSet seatMap, int seatNumber) {
+        return seatNumber >= 1 && seatNumber <= bookableSeats(wagon, seatMap);
+    }
+
+    /**
+     * @param wagon
+     * @param seatNumber
+     * @return  whether the seat was free and is now reserved
+     */
+    public boolean reserve(PassengerWagon wagon, int seatNumber) {
+        SeatBitSet seatMap = seatMapOf(wagon);
+        return isValid(wagon, seatMap, seatNumber) && seatMap.reserve(seatNumber);
+    }
+
+    /**
+     * Reserves a block of adjacent seats in one wagon
+     * @param wagon
+     * @param numberOfSeats
+     * @return  the first seat of the reserved block,
+     *          or 0 if the wagon has no block of that many adjacent free seats
+     */
+    public int reserveBlock(PassengerWagon wagon, int numberOfSeats) {
+        SeatBitSet seatMap = seatMapOf(wagon);
+        return seatMap.reserveBlock(numberOfSeats, bookableSeats(wagon, seatMap));
+    }
+
+    /**
+     * @param wagon
+     * @param seatNumber
+     * @return  whether the seat was reserved and is now free again
+     */
+    public boolean cancel(PassengerWagon wagon, int seatNumber) {
+        SeatBitSet seatMap = existingSeatMapOf(wagon);
+        return seatMap != null && isValid(wagon, seatMap, seatNumber) && seatMap.cancel(seatNumber);
+    }
+
+    public boolean isReserved(PassengerWagon wagon, int seatNumber) {
+        SeatBitSet seatMap = existingSeatMapOf(wagon);
+        return seatMap != null && isValid(wagon, seatMap, seatNumber) && seatMap.isReserved(seatNumber);
+    }
+
+    public int getNumberOfReservedSeats(PassengerWagon wagon) {
+        SeatBitSet seatMap = existingSeatMapOf(wagon);
+        return seatMap == null ? 0 : seatMap.countReserved();
+    }
+
+    /**
+     * @param train
+     * @return  the first free seat, from the front of the train,
+     *          or null if the train has no free seats
+     */
+    public Seat findFirstFreeSeat(Train train) {
+        if (!train.isPassengerTrain()) {
+            return null;
+        }
+
+        for (Wagon trainWagon : train.sharedWagons()) {
+            PassengerWagon wagon = (PassengerWagon) trainWagon;
+            SeatBitSet seatMap = seatMapOf(wagon);
+            int seatNumber = seatMap.firstFree(bookableSeats(wagon, seatMap));
+            if (seatNumber > 0) {
+                return new Seat(wagon, seatNumber);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reserves the first free seat, from the front of the train
+     * @param train
+     * @return  the reserved seat, or null if the train has no free seats
+     */
+    public Seat reserveFirstFreeSeat(Train train) {
+        while (true) {
+            Seat seat = findFirstFreeSeat(train);
+            if (seat == null || reserve(seat.wagon, seat.seatNumber)) {
+                return seat;
+            }
+            // another thread was first, search again
+        }
+    }
+
+    /**
+     * Reserves a block of adjacent seats in the first wagon, from the front of the train, that has one
+     * @param train
+     * @param numberOfSeats
+     * @return  the first seat of the reserved block, or null if no wagon has enough adjacent free seats
+     */
+    public Seat reserveBlock(Train train, int numberOfSeats) {
+        if (!train.isPassengerTrain()) {
+            return null;
+        }
+
+        for (Wagon trainWagon : train.sharedWagons()) {
+            PassengerWagon wagon = (PassengerWagon) trainWagon;
+            int seatNumber = reserveBlock(wagon, numberOfSeats);
+            if (seatNumber > 0) {
+                return new Seat(wagon, seatNumber);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,50 @@
+package models;
+
+import java.util.Objects;
+
+/**
+ * The origin and destination of a train, used to group and look up trains.
+ */
+public class Route {
+    private final String origin;
+    private final String destination;
+
+    public Route(String origin, String destination) {
+        this.origin = origin;
+        this.destination = destination;
+    }
+
+    public static Route of(Train train) {
+        return new Route(train.getOrigin(), train.getDestination());
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Route)) {
+            return false;
+        }
+        Route route = (Route) o;
+        return Objects.equals(origin, route.origin) && Objects.equals(destination, route.destination);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(origin, destination);
+    }
+
+    @Override
+    public String toString() {
+        return origin + " to " + destination;
+    }
+}
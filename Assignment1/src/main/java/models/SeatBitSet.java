@@ -0,0 +1,185 @@
+package models;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free set of reserved seats of one wagon.
+ * Every seat is one bit, changed with compare-and-set, so any number of threads can reserve concurrently.
+ * The words of bits are kept in segments of a fixed size. Growing the set adds segments,
+ * and never moves a bit, so it does not lose a reservation made at the same time.
+ * Seats are numbered from 1.
+ */
+class SeatBitSet {
+    private static final int SEGMENT_SHIFT = 4;
+    private static final int SEGMENT_WORDS = 1 << SEGMENT_SHIFT;
+
+    private volatile AtomicLongArray[] segments;
+    private volatile int capacity;
+
+    SeatBitSet(int capacity) {
+        this.segments = new AtomicLongArray[0];
+        grow(capacity);
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Makes room for at least the given number of seats, keeping all reservations
+     */
+    synchronized void grow(int minimumCapacity) {
+        if (minimumCapacity <= capacity) {
+            return;
+        }
+
+        int numberOfSegments = (minimumCapacity + (SEGMENT_WORDS << 6) - 1) / (SEGMENT_WORDS << 6);
+        if (numberOfSegments > segments.length) {
+            AtomicLongArray[] grown = Arrays.copyOf(segments, numberOfSegments);
+            for (int i = segments.length; i < numberOfSegments; i++) {
+                grown[i] = new AtomicLongArray(SEGMENT_WORDS);
+            }
+            segments = grown;
+        }
+        capacity = minimumCapacity;
+    }
+
+    private int numberOfWords() {
+        return (capacity + 63) >>> 6;
+    }
+
+    private long word(int word) {
+        return segments[word >>> SEGMENT_SHIFT].get(word & (SEGMENT_WORDS - 1));
+    }
+
+    private boolean compareAndSetWord(int word, long expected, long value) {
+        return segments[word >>> SEGMENT_SHIFT].compareAndSet(word & (SEGMENT_WORDS - 1), expected, value);
+    }
+
+    boolean isReserved(int seat) {
+        int bit = seat - 1;
+        return (word(bit >>> 6) & (1L << bit)) != 0;
+    }
+
+    /**
+     * @return  whether the seat was free and has now been reserved
+     */
+    boolean reserve(int seat) {
+        return setBits(seat - 1 >>> 6, 1L << (seat - 1));
+    }
+
+    /**
+     * @return  whether the seat was reserved and has now been freed
+     */
+    boolean cancel(int seat) {
+        return clearBits(seat - 1 >>> 6, 1L << (seat - 1));
+    }
+
+    /**
+     * Reserves the first run of count adjacent free seats among the first limit seats
+     * @return  the first seat of the reserved run, or 0 if no such run is free
+     */
+    int reserveBlock(int count, int limit) {
+        int end = Math.min(limit, capacity);
+        if (count < 1 || count > end) {
+            return 0;
+        }
+
+        int from = 0;
+        while (true) {
+            int first = findFreeRun(from, count, end);
+            if (first < 0) {
+                return 0;
+            }
+            if (setRange(first, first + count)) {
+                return first + 1;
+            }
+            // another thread took a seat of the run in the meantime, look again from the same place
+            from = first;
+        }
+    }
+
+    /**
+     * @return  the first free seat among the first limit seats, or 0 if all of them are reserved
+     */
+    int firstFree(int limit) {
+        int end = Math.min(limit, capacity);
+        for (int word = 0; word << 6 < end; word++) {
+            long free = ~word(word);
+            if (free != 0) {
+                int bit = (word << 6) + Long.numberOfTrailingZeros(free);
+                return bit < end ? bit + 1 : 0;
+            }
+        }
+        return 0;
+    }
+
+    int countReserved() {
+        int count = 0;
+        for (int word = 0; word < numberOfWords(); word++) {
+            count += Long.bitCount(word(word));
+        }
+        return count;
+    }
+
+    private int findFreeRun(int from, int count, int end) {
+        int runStart = from;
+        for (int bit = from; bit < end; bit++) {
+            if ((word(bit >>> 6) & (1L << bit)) != 0) {
+                runStart = bit + 1;
+            } else if (bit - runStart + 1 == count) {
+                return runStart;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sets all bits from (inclusive) to (exclusive), one word at a time.
+     * If a bit turns out to be set already, the words set so far are cleared again.
+     */
+    private boolean setRange(int from, int to) {
+        for (int word = from >>> 6; word << 6 < to; word++) {
+            long mask = rangeMask(word, from, to);
+            if (!setBits(word, mask)) {
+                for (int done = from >>> 6; done < word; done++) {
+                    clearBits(done, rangeMask(done, from, to));
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long rangeMask(int word, int from, int to) {
+        int low = Math.max(from - (word << 6), 0);
+        int high = Math.min(to - (word << 6), 64);
+        long mask = high == 64 ? -1L : (1L << high) - 1;
+        return mask & (-1L << low);
+    }
+
+    private boolean setBits(int word, long mask) {
+        while (true) {
+            long current = word(word);
+            if ((current & mask) != 0) {
+                return false;
+            }
+            if (compareAndSetWord(word, current, current | mask)) {
+                return true;
+            }
+        }
+    }
+
+    private boolean clearBits(int word, long mask) {
+        while (true) {
+            long current = word(word);
+            if ((current & mask) != mask) {
+                return false;
+            }
+            if (compareAndSetWord(word, current, current & ~mask)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package models;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A prefix-sum index (Fenwick tree) over the number of seats per wagon of a train.
+ * It finds the wagon holding a given seat, and the number of seats in a range of positions, in O(log n).
+ * Seats are numbered from 1, starting at the first wagon of the train.
+ *
+ * The index listens to its train:
+ *      a changed number of seats updates the index in O(log n),
+ *      a reversal of the train only changes the orientation of the index,
+ *      any other change of the wagons rebuilds the index in O(n) at the next query.
+ */
+public class SeatIndex implements TrainListener {
+    private final Train train;
+    private Wagon[] wagons = new Wagon[0];
+    private int[] seats = new int[0];
+    private long[] tree = new long[1];
+    private Map<Wagon, Integer> indexes = new IdentityHashMap<>();
+    private boolean reversed;
+    private boolean stale = true;
+
+    public SeatIndex(Train train) {
+        this.train = train;
+        train.addListener(this);
+    }
+
+    /**
+     * Stops following the changes of the train
+     */
+    public void close() {
+        train.removeListener(this);
+    }
+
+    @Override
+    public void trainChanged(Train train) {
+        stale = true;
+    }
+
+    @Override
+    public void wagonChanged(Train train, Wagon wagon) {
+        Integer index = indexes.get(wagon);
+        if (stale || index == null || !(wagon instanceof PassengerWagon)) {
+            stale = true;
+            return;
+        }
+
+        int numberOfSeats = ((PassengerWagon) wagon).getNumberOfSeats();
+        add(index, numberOfSeats - seats[index]);
+        seats[index] = numberOfSeats;
+    }
+
+    @Override
+    public void trainReversed(Train train) {
+        reversed = !reversed;
+    }
+
+    /**
+     * @return  the total number of seats of the train
+     */
+    public long getTotalNumberOfSeats() {
+        refresh();
+        return prefixSum(wagons.length - 1);
+    }
+
+    /**
+     * @param position  starting at 1 for the first wagon of the train
+     * @return  the number of seats in the wagons in front of the given position
+     */
+    public long seatsInFrontOf(int position) {
+        return seatsBetween(1, position - 1);
+    }
+
+    /**
+     * @param fromPosition
+     * @param toPosition
+     * @return  the number of seats in the wagons from fromPosition up to and including toPosition
+     */
+    public long seatsBetween(int fromPosition, int toPosition) {
+        refresh();
+        int from = Math.max(fromPosition, 1);
+        int to = Math.min(toPosition, wagons.length - 1);
+        if (from > to) {
+            return 0;
+        }
+
+        int first = indexOf(from);
+        int last = indexOf(to);
+        if (first > last) {
+            int swap = first;
+            first = last;
+            last = swap;
+        }
+        return prefixSum(last) - prefixSum(first - 1);
+    }
+
+    /**
+     * @param seatNumber  starting at 1 for the first seat of the first wagon
+     * @return  the position of the wagon holding the given seat,
+     *          or 0 if the train does not have that many seats
+     */
+    public int findPositionOfSeat(long seatNumber) {
+        refresh();
+        long total = prefixSum(wagons.length - 1);
+        if (seatNumber < 1 || seatNumber > total) {
+            return 0;
+        }
+
+        // in a reversed train the seat is counted from the other end of the index
+        long target = reversed ? total - seatNumber + 1 : seatNumber;
+        int index = 0;
+        for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+            int next = index + step;
+            if (next < tree.length && tree[next] < target) {
+                index = next;
+                target -= tree[next];
+            }
+        }
+        return indexOf(index + 1);
+    }
+
+    /**
+     * @param seatNumber  starting at 1 for the first seat of the first wagon
+     * @return  the wagon holding the given seat,
+     *          or null if the train does not have that many seats
+     */
+    public PassengerWagon findWagonOfSeat(long seatNumber) {
+        int position = findPositionOfSeat(seatNumber);
+        return position == 0 ? null : (PassengerWagon) wagons[indexOf(position)];
+    }
+
+    /**
+     * Converts between a position in the train and an index in the arrays of this index
+     * (the conversion is its own inverse)
+     */
+    private int indexOf(int position) {
+        return reversed ? wagons.length - position : position;
+    }
+
+    private long prefixSum(int index) {
+        long sum = 0;
+        for (int i = index; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    private void add(int index, long delta) {
+        for (int i = index; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Rebuilds the index in O(n) if the wagons of the train have changed
+     */
+    private void refresh() {
+        if (!stale) {
+            return;
+        }
+
+        int numberOfWagons = train.getNumberOfWagons();
+        wagons = new Wagon[numberOfWagons + 1];
+        seats = new int[numberOfWagons + 1];
+        tree = new long[numberOfWagons + 1];
+        indexes = new IdentityHashMap<>(numberOfWagons);
+
+        int index = 1;
+        // the iterator reads the wagons in the order of the train without rewriting any links
+        for (Wagon wagon : train) {
+            wagons[index] = wagon;
+            seats[index] = wagon instanceof PassengerWagon ? ((PassengerWagon) wagon).getNumberOfSeats() : 0;
+            indexes.put(wagon, index);
+            index++;
+        }
+
+        // builds the Fenwick tree in O(n) by pushing every node into its parent
+        for (int i = 1; i <= numberOfWagons; i++) {
+            tree[i] += seats[i];
+            int parent = i + (i & -i);
+            if (parent <= numberOfWagons) {
+                tree[parent] += tree[i];
+            }
+        }
+
+        reversed = false;
+        stale = false;
+    }
+}
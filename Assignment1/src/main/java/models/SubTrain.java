@@ -0,0 +1,173 @@
+package models;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A read-only view of the wagons of a train from one position up to and including another,
+ * see {@link Train#subTrain(int, int)}. The view shares the wagons of the train.
+ *
+ * The view remains valid while no wagons are added to, removed from or relinked in the train;
+ * changes of the properties of the wagons (such as their number of seats) are seen by the view.
+ * Any use of an invalidated view throws an IllegalStateException.
+ */
+public class SubTrain implements Iterable<Wagon> {
+    private final Train train;
+    private final int fromPosition;
+    private final int toPosition;
+    private final Wagon firstWagon;
+    private final boolean reversed;
+    private final long structureVersion;
+
+    SubTrain(Train train, int fromPosition, int toPosition, Wagon firstWagon) {
+        this.train = train;
+        this.fromPosition = fromPosition;
+        this.toPosition = toPosition;
+        this.firstWagon = firstWagon;
+        this.reversed = train.isReversed();
+        this.structureVersion = train.getStructureVersion();
+    }
+
+    public Train getTrain() {
+        return train;
+    }
+
+    public int getFromPosition() {
+        return fromPosition;
+    }
+
+    public int getToPosition() {
+        return toPosition;
+    }
+
+    /**
+     * @return  whether the wagons of the train have not been changed since the view was created
+     */
+    public boolean isValid() {
+        return structureVersion == train.getStructureVersion();
+    }
+
+    private void checkValid() {
+        if (!isValid()) {
+            throw new IllegalStateException("The wagons of train " + train.getEngine().getLocNumber()
+                    + " have changed since the view of positions " + fromPosition + " to " + toPosition + " was created");
+        }
+    }
+
+    public int getNumberOfWagons() {
+        return toPosition - fromPosition + 1;
+    }
+
+    public Wagon getFirstWagon() {
+        checkValid();
+        return firstWagon;
+    }
+
+    /**
+     * Iterates over the wagons of the view, in the order of the train
+     * @return  an iterator that checks the validity of the view at every step
+     */
+    @Override
+    public Iterator<Wagon> iterator() {
+        checkValid();
+        return new Iterator<>() {
+            private Wagon next = firstWagon;
+            private int remaining = getNumberOfWagons();
+
+            @Override
+            public boolean hasNext() {
+                return remaining > 0;
+            }
+
+            @Override
+            public Wagon next() {
+                if (remaining == 0) {
+                    throw new NoSuchElementException();
+                }
+                checkValid();
+                Wagon wagon = next;
+                next = reversed ? wagon.getPreviousWagon() : wagon.getNextWagon();
+                remaining--;
+                return wagon;
+            }
+        };
+    }
+
+    /**
+     * @return  the total number of seats in the view (0 for the wagons of a freight train)
+     */
+    public int getTotalNumberOfSeats() {
+        int total = 0;
+        for (Wagon wagon : this) {
+            if (wagon instanceof PassengerWagon) {
+                total += ((PassengerWagon) wagon).getNumberOfSeats();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @return  the total maximum weight of the view (0 for the wagons of a passenger train)
+     */
+    public int getTotalMaxWeight() {
+        int total = 0;
+        for (Wagon wagon : this) {
+            if (wagon instanceof FreightWagon) {
+                total += ((FreightWagon) wagon).getMaxWeight();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @return  the total load in the view (0 for the wagons of a passenger train)
+     */
+    public int getTotalLoad() {
+        int total = 0;
+        for (Wagon wagon : this) {
+            if (wagon instanceof FreightWagon) {
+                total += ((FreightWagon) wagon).getLoad();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @param wagonId
+     * @return  the wagon with the given id within the view, or null if there is none
+     */
+    public Wagon findWagonById(int wagonId) {
+        for (Wagon wagon : this) {
+            if (wagon.getId() == wagonId) {
+                return wagon;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param wagonId
+     * @return  the position in the train of the wagon with the given id within the view,
+     *          or 0 if there is none
+     */
+    public int findPositionById(int wagonId) {
+        int position = fromPosition;
+        for (Wagon wagon : this) {
+            if (wagon.getId() == wagonId) {
+                return position;
+            }
+            position++;
+        }
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder stringBuilder = new StringBuilder();
+        for (Wagon wagon : this) {
+            stringBuilder.append(wagon.toString());
+        }
+        return stringBuilder.append(" at positions ").append(fromPosition).append(" to ").append(toPosition)
+                .append(" of [Loc-").append(train.getEngine().getLocNumber()).append("]").toString();
+    }
+}
@@ -1,14 +1,51 @@
 package models;
 
-public class Train {
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.ToIntFunction;
+
+public class Train implements Iterable<Wagon> {
     private String origin;
     private String destination;
     private Locomotive engine;
     private Wagon firstWagon;
+    private Wagon lastWagon;
+    private int numberOfWagons;
+    private int totalNumberOfSeats;
+    private int totalMaxWeight;
+    private int totalLoad;
+    private WagonType type;
+    private boolean reversed;
+    private long version;
+    // changes whenever wagons are added, removed or relinked, but not when their properties change
+    private long structureVersion;
+    private List<TrainListener> listeners;
+    // the trains (including this one) that share the sequence of wagons of this train, if any
+    private List<Train> sharers;
+    // the result of toString, valid while the version and the locomotive number have not changed
+    private String rendered;
+    private long renderedVersion = -1;
+    private int renderedLocNumber;
+    // the wagons part of toString, only cleared when the sequence or the ids of the wagons change
+    private String renderedWagons;
+    // the ids of the wagons, built at the first lookup, and the number of ids removed since
+    private WagonIdFilter idFilter;
+    private int removedIds;
 
     /* Representation invariants:
         firstWagon == null || firstWagon.previousWagon == null
         engine != null
+        lastWagon == null || lastWagon.nextWagon == null
+        numberOfWagons == the number of wagons in the sequence from firstWagon to lastWagon
+        totalNumberOfSeats, totalMaxWeight and totalLoad are the sums over the wagons in that sequence
+        for every wagon in that sequence: wagon.train == this,
+            or, if sharers != null, wagon.train is one of the sharers
+        type == null if and only if firstWagon == null
+        firstWagon and lastWagon are the physical ends of the sequence of wagons,
+        if reversed the train runs from lastWagon back to firstWagon
      */
 
     public Train(Locomotive engine, String origin, String destination) {
@@ -22,27 +59,304 @@ public class Train {
     }
 
     public boolean isPassengerTrain() {
-        if (!this.hasWagons()) {
-            return false;
+        return this.type == WagonType.PASSENGER;
+    }
+
+    public boolean isFreightTrain() {
+        return this.type == WagonType.FREIGHT;
+    }
+
+    /**
+     * @return  the type of the wagons pulled by this train,
+     *          or null if the train has no wagons
+     */
+    public WagonType getType() {
+        return type;
+    }
+
+    public Locomotive getEngine() {
+        return engine;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    /**
+     * @return  a number that changes whenever the wagons of this train
+     *          or the properties of those wagons change
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Creates a copy of this train that initially shares the wagons of this train.
+     * Forking takes O(1): the wagons are only copied when this train or one of its forks
+     * changes, and then only for the trains that no longer share them.
+     * A wagon belongs to one train only, see {@link Wagon#getTrain()}: a train that shares the wagons
+     * of another train gets its own copy before it hands out any of them (from getFirstWagon,
+     * findWagonById, its iterator and the like), and a change of a property of a wagon
+     * is a change of its train, so the trains that share it continue on a copy with the former value.
+     * Totals, toString and the other queries that do not return wagons never copy them.
+     * Listeners are not copied.
+     * @return  the new train
+     */
+    public Train fork() {
+        Train fork = new Train(engine, origin, destination);
+        fork.firstWagon = firstWagon;
+        fork.lastWagon = lastWagon;
+        fork.numberOfWagons = numberOfWagons;
+        fork.totalNumberOfSeats = totalNumberOfSeats;
+        fork.totalMaxWeight = totalMaxWeight;
+        fork.totalLoad = totalLoad;
+        fork.type = type;
+        fork.reversed = reversed;
+
+        if (firstWagon != null) {
+            if (sharers == null) {
+                sharers = new ArrayList<>();
+                sharers.add(this);
+            }
+            sharers.add(fork);
+            fork.sharers = sharers;
         }
+        return fork;
+    }
 
-        return this.firstWagon instanceof PassengerWagon;
+    /**
+     * Forks every train of a fleet, see {@link #fork()}
+     * @param fleet
+     * @return  the forks, in the order of the fleet
+     */
+    public static List<Train> fork(List<Train> fleet) {
+        List<Train> forks = new ArrayList<>(fleet.size());
+        for (Train train : fleet) {
+            forks.add(train.fork());
+        }
+        return forks;
     }
 
-    public boolean isFreightTrain() {
-        if (!this.hasWagons()) {
+    /**
+     * @return  whether this train shares its wagons with a fork
+     */
+    public boolean isShared() {
+        return sharers != null;
+    }
+
+    /**
+     * Stops sharing the sequence of wagons of this train, before it is changed.
+     * The owner of the wagons keeps them, the trains that do not own them continue on a copy
+     * (one copy for all of the remaining trains when the owner leaves).
+     * @return  whether the wagons of this train have been replaced by a copy,
+     *          so wagons located before are no longer part of it
+     */
+    private boolean ensureExclusive() {
+        if (sharers == null) {
             return false;
         }
 
-        return this.firstWagon instanceof FreightWagon;
+        List<Train> others = sharers;
+        others.remove(this);
+        sharers = null;
+        if (others.size() == 1) {
+            others.get(0).sharers = null;
+        }
+
+        if (firstWagon.getTrain() == this) {
+            Wagon copy = copySequence(firstWagon, others.get(0));
+            Wagon lastOfCopy = copy.getLastWagonAttached();
+            for (Train other : others) {
+                other.firstWagon = copy;
+                other.lastWagon = lastOfCopy;
+                other.structureVersion++;
+            }
+            return false;
+        }
+
+        firstWagon = copySequence(firstWagon, this);
+        lastWagon = firstWagon.getLastWagonAttached();
+        structureVersion++;
+        return true;
     }
 
-    public Locomotive getEngine() {
-        return engine;
+    /**
+     * Prepares the wagons of this train before any of them is handed out:
+     * gives this train its own copy of the wagons it shares, unless it owns them,
+     * and relinks the wagons of a reversed train in its order, so they can be walked by their links.
+     */
+    private void handOutWagons() {
+        if (sharers != null && firstWagon.getTrain() != this) {
+            ensureExclusive();
+        }
+        normalize();
     }
 
+    /**
+     * @param head  the first wagon of a sequence
+     * @param owner the train of the copied wagons
+     * @return  the first wagon of a copy of the sequence
+     */
+    private static Wagon copySequence(Wagon head, Train owner) {
+        Wagon copy = head.copy();
+        copy.setTrain(owner);
+        Wagon last = copy;
+        for (Wagon wagon = head.getNextWagon(); wagon != null; wagon = wagon.getNextWagon()) {
+            Wagon next = wagon.copy();
+            next.setTrain(owner);
+            last.attachTail(next);
+            last = next;
+        }
+        return copy;
+    }
+
+    long getStructureVersion() {
+        return structureVersion;
+    }
+
+    boolean isReversed() {
+        return reversed;
+    }
+
+    /**
+     * Creates a read-only view of a range of wagons of this train, see {@link SubTrain}.
+     * Only the first wagon of the range is located, from the nearest end of the train.
+     * @param fromPosition  the position of the first wagon of the view (starting at 1)
+     * @param toPosition    the position of the last wagon of the view
+     * @return  the view
+     * @throws IndexOutOfBoundsException if the range is not valid for this train
+     */
+    public SubTrain subTrain(int fromPosition, int toPosition) {
+        if (fromPosition < 1 || toPosition > numberOfWagons || fromPosition > toPosition) {
+            throw new IndexOutOfBoundsException("Range " + fromPosition + " to " + toPosition
+                    + " is not valid for a train with " + numberOfWagons + " wagons");
+        }
+        handOutWagons();
+        return new SubTrain(this, fromPosition, toPosition, wagonAt(fromPosition));
+    }
+
+    /**
+     * Registers a listener to be notified after every change of this train
+     * @param listener
+     */
+    public void addListener(TrainListener listener) {
+        if (listeners == null) {
+            listeners = new ArrayList<>();
+        }
+        listeners.add(listener);
+    }
+
+    public void removeListener(TrainListener listener) {
+        if (listeners != null) {
+            listeners.remove(listener);
+        }
+    }
+
+    /**
+     * Registers a change of the wagons of this train,
+     * after the change has been completed.
+     */
+    private void changed() {
+        restructured();
+        if (listeners != null) {
+            for (TrainListener listener : listeners) {
+                listener.trainChanged(this);
+            }
+        }
+    }
+
+    /**
+     * Registers the insertion of a sequence of wagons into this train, after it has been linked.
+     * @param position  the position of the first inserted wagon
+     * @param head      the first inserted wagon
+     * @param count     the number of inserted wagons
+     */
+    private void inserted(int position, Wagon head, int count) {
+        restructured();
+        if (listeners != null) {
+            int[] wagonIds = new int[count];
+            Wagon wagon = head;
+            for (int i = 0; i < count; i++) {
+                wagonIds[i] = wagon.getId();
+                wagon = reversed ? wagon.getPreviousWagon() : wagon.getNextWagon();
+            }
+            for (TrainListener listener : listeners) {
+                listener.wagonsInserted(this, position, wagonIds);
+            }
+        }
+    }
+
+    /**
+     * Registers the removal of a sequence of wagons from this train, after it has been unlinked.
+     * @param position  the position that the first removed wagon had
+     * @param count     the number of removed wagons
+     */
+    private void removed(int position, int count) {
+        restructured();
+        if (listeners != null) {
+            for (TrainListener listener : listeners) {
+                listener.wagonsRemoved(this, position, count);
+            }
+        }
+    }
+
+    private void restructured() {
+        version++;
+        structureVersion++;
+        renderedWagons = null;
+    }
+
+    /**
+     * Prepares this train for a change of a property of one of its wagons.
+     * Like any other change, it stops the sharing of the wagons, so the other trains keep the former value.
+     */
+    void wagonChanging() {
+        ensureExclusive();
+    }
+
+    /**
+     * Registers a change of a property of one of the wagons of this train.
+     * @param wagon the wagon that has changed
+     */
+    void wagonChanged(Wagon wagon) {
+        version++;
+        if (listeners != null) {
+            for (TrainListener listener : listeners) {
+                listener.wagonChanged(this, wagon);
+            }
+        }
+    }
+
+    /**
+     * Registers a change of the id of one of the wagons of this train.
+     * @param wagon     the wagon that has changed
+     * @param formerId  the id of the wagon before the change
+     */
+    void wagonRenamed(Wagon wagon, int formerId) {
+        renderedWagons = null;
+        if (idFilter != null) {
+            // the former id remains in the filter
+            idFilter.add(wagon.getId());
+            removedIds++;
+        }
+        version++;
+        if (listeners != null) {
+            for (TrainListener listener : listeners) {
+                listener.wagonRenamed(this, wagon, formerId);
+            }
+        }
+    }
+
+    /**
+     * @return  the first wagon of the train, or null if the train has no wagons
+     */
     public Wagon getFirstWagon() {
-        return firstWagon;
+        handOutWagons();
+        return frontWagon();
     }
 
     /**
@@ -52,33 +366,85 @@ public class Train {
      * @param wagon the first wagon of a sequence of wagons to be attached
      */
     public void setFirstWagon(Wagon wagon) {
-        this.firstWagon = wagon;
+        ensureExclusive();
+        for (Wagon current = this.firstWagon; current != null; current = current.getNextWagon()) {
+            current.setTrain(null);
+        }
+        this.firstWagon = null;
+        this.lastWagon = null;
+        this.numberOfWagons = 0;
+        this.totalNumberOfSeats = 0;
+        this.totalMaxWeight = 0;
+        this.totalLoad = 0;
+        this.type = null;
+        this.reversed = false;
+        this.idFilter = null;
+
+        if (wagon != null) {
+            detachFromPredecessor(wagon);
+            this.firstWagon = wagon;
+            this.lastWagon = adopt(wagon);
+        }
+        changed();
+    }
+
+    /**
+     * Iterates over the wagons in the order of the train
+     * @return  an iterator from the first to the last wagon
+     */
+    @Override
+    public Iterator<Wagon> iterator() {
+        handOutWagons();
+        return readIterator();
+    }
+
+    /**
+     * The wagons in the order of the train, for reading only: unlike {@link #iterator()}
+     * this does not give this train its own copy of the wagons it shares,
+     * nor relink the wagons of a reversed train, so several threads may read at the same time,
+     * but the wagons must not be changed or handed out.
+     */
+    Iterable<Wagon> sharedWagons() {
+        return this::readIterator;
+    }
+
+    private Iterator<Wagon> readIterator() {
+        return new Iterator<>() {
+            private Wagon next = reversed ? lastWagon : firstWagon;
+            private final boolean backwards = reversed;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Wagon next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Wagon wagon = next;
+                next = backwards ? wagon.getPreviousWagon() : wagon.getNextWagon();
+                return wagon;
+            }
+        };
     }
 
     public int getNumberOfWagons() {
-        Wagon wagon = this.firstWagon;
-        if (wagon == null) {
-            return 0;
-        }
-        int i = 1; // Start by one so the firstWagon is also counted.
-        while (wagon.hasNextWagon()) {
-            wagon = wagon.getNextWagon();
-            i++;
-        }
-        return i;
+        return numberOfWagons;
     }
 
     public Wagon getLastWagonAttached() {
-        Wagon wagon = this.firstWagon;
-        if (wagon == null) {
-            return null;
-        }
+        handOutWagons();
+        return rearWagon();
+    }
 
-        while (wagon.hasNextWagon()) {
-            wagon = wagon.getNextWagon();
-        }
+    private Wagon frontWagon() {
+        return reversed ? lastWagon : firstWagon;
+    }
 
-        return wagon;
+    private Wagon rearWagon() {
+        return reversed ? firstWagon : lastWagon;
     }
 
     /**
@@ -86,22 +452,11 @@ public class Train {
      *          (return 0 for a freight train)
      */
     public int getTotalNumberOfSeats() {
-        int seats = 0;
-
         if (!this.isPassengerTrain()) {
-            return seats;
-        }
-
-        Wagon wagon = this.firstWagon;
-        if (wagon == null) {
-            return seats;
+            return 0;
         }
 
-        for (int i = 0; i < getNumberOfWagons(); i++) {
-            seats += ((PassengerWagon) wagon).getNumberOfSeats();
-            wagon = wagon.getNextWagon();
-        }
-        return seats;
+        return totalNumberOfSeats;
     }
 
     /**
@@ -111,22 +466,60 @@ public class Train {
      *
      */
     public int getTotalMaxWeight() {
-        int weight = 0;
-
         if (!this.isFreightTrain()) {
-            return weight;
+            return 0;
         }
 
-        Wagon wagon = this.firstWagon;
-        if (wagon == null) {
-            return weight;
+        return totalMaxWeight;
+    }
+
+    /**
+     * @return  the total load carried by a freight train
+     *          (return 0 for a passenger train)
+     */
+    public int getTotalLoad() {
+        if (!this.isFreightTrain()) {
+            return 0;
         }
 
-        for (int i = 0; i < getNumberOfWagons(); i++) {
-            weight += ((FreightWagon) wagon).getMaxWeight();
-            wagon = wagon.getNextWagon();
+        return totalLoad;
+    }
+
+    /**
+     * @return  the weight that can still be loaded onto a freight train
+     *          (return 0 for a passenger train)
+     */
+    public int getRemainingCapacity() {
+        return getTotalMaxWeight() - getTotalLoad();
+    }
+
+    /**
+     * Updates the totals of this train after a property of one of its wagons has changed
+     */
+    void adjustTotals(int seats, int maxWeight, int load) {
+        totalNumberOfSeats += seats;
+        totalMaxWeight += maxWeight;
+        totalLoad += load;
+    }
+
+    /**
+     * Adds (sign = 1) or subtracts (sign = -1) the given wagon to or from the totals of this train
+     */
+    private void count(Wagon wagon, int sign) {
+        numberOfWagons += sign;
+        if (idFilter != null) {
+            if (sign > 0) {
+                idFilter.add(wagon.getId());
+            } else {
+                removedIds++;
+            }
+        }
+        if (wagon instanceof PassengerWagon) {
+            totalNumberOfSeats += sign * ((PassengerWagon) wagon).getNumberOfSeats();
+        } else if (wagon instanceof FreightWagon) {
+            totalMaxWeight += sign * ((FreightWagon) wagon).getMaxWeight();
+            totalLoad += sign * ((FreightWagon) wagon).getLoad();
         }
-        return weight;
     }
 
      /**
@@ -136,21 +529,29 @@ public class Train {
      *          (return null if the position is not valid for this train)
      */
     public Wagon findWagonAtPosition(int position) {
-        Wagon wagon = this.firstWagon;
-        if (position == 1 || wagon == null) {
-            return wagon;
+        handOutWagons();
+        return wagonAt(position);
+    }
+
+    private Wagon wagonAt(int position) {
+        if (position < 1 || position > numberOfWagons) {
+            return null;
         }
 
-        for (int i = 2; i <= position; i++) {
-            if (!wagon.hasNextWagon()) {
-                return null;
-            }
-            wagon = wagon.getNextWagon();
-            if (i == position) {
-                return wagon;
+        // walk from the nearest end of the train
+        if (position <= numberOfWagons / 2) {
+            Wagon wagon = reversed ? lastWagon : firstWagon;
+            for (int i = 1; i < position; i++) {
+                wagon = reversed ? wagon.getPreviousWagon() : wagon.getNextWagon();
             }
+            return wagon;
         }
-        return null;
+
+        Wagon wagon = reversed ? firstWagon : lastWagon;
+        for (int i = numberOfWagons; i > position; i--) {
+            wagon = reversed ? wagon.getNextWagon() : wagon.getPreviousWagon();
+        }
+        return wagon;
     }
 
     /**
@@ -160,42 +561,131 @@ public class Train {
      *          (return null if no wagon was found with the given wagonId)
      */
     public Wagon findWagonById(int wagonId) {
-        Wagon wagon = this.firstWagon;
-        if (wagon == null) {
+        handOutWagons();
+        return wagonWithId(wagonId);
+    }
+
+    private Wagon wagonWithId(int wagonId) {
+        if (!mightContainWagon(wagonId)) {
             return null;
         }
 
-        for (int i = 0; i < getNumberOfWagons(); i++) {
+        for (Wagon wagon = this.firstWagon; wagon != null; wagon = wagon.getNextWagon()) {
             if (wagon.getId() == wagonId) {
                 return wagon;
             }
-            wagon = wagon.getNextWagon();
         }
 
         return null;
     }
 
+    /**
+     * @param wagonId
+     * @return  the position of the wagon with the given id, or 0 if it is not part of this train
+     */
+    public int findPositionById(int wagonId) {
+        if (!mightContainWagon(wagonId)) {
+            return 0;
+        }
+
+        int position = 1;
+        for (Wagon wagon : sharedWagons()) {
+            if (wagon.getId() == wagonId) {
+                return position;
+            }
+            position++;
+        }
+        return 0;
+    }
+
+    /**
+     * @return  a new query over the wagons of this train, see {@link WagonQuery}
+     */
+    public WagonQuery query() {
+        return new WagonQuery(this);
+    }
+
+    /**
+     * Checks the ids of the wagons of this train in O(1), with a Bloom filter that is kept up to date
+     * as wagons are attached, and rebuilt in O(n) at a lookup when it holds too many removed ids
+     * or has grown beyond its capacity.
+     * @param wagonId
+     * @return  false if this train certainly has no wagon with the given id,
+     *          true if it probably has
+     */
+    public boolean mightContainWagon(int wagonId) {
+        if (idFilter == null || removedIds > Math.max(numberOfWagons, 16) || idFilter.size() > idFilter.getCapacity()) {
+            idFilter = new WagonIdFilter(2 * numberOfWagons);
+            removedIds = 0;
+            for (Wagon wagon = firstWagon; wagon != null; wagon = wagon.getNextWagon()) {
+                idFilter.add(wagon.getId());
+            }
+        }
+        return idFilter.mightContain(wagonId);
+    }
+
+    /**
+     * Finds the train of a fleet that has a wagon with the given id,
+     * skipping the wagons of every train of which the Bloom filter rules it out, see {@link #mightContainWagon(int)}
+     * @param fleet
+     * @param wagonId
+     * @return  the first train of the fleet with that wagon, or null if there is none
+     */
+    public static Train findTrainWithWagon(Iterable<Train> fleet, int wagonId) {
+        for (Train train : fleet) {
+            if (train.wagonWithId(wagonId) != null) {
+                return train;
+            }
+        }
+        return null;
+    }
+
     /**
      * Determines if the given sequence of wagons can be attached to the train
      * Verfies of the type of wagons match the type of train (Passenger or Freight)
      * Verfies that the capacity of the engine is sufficient to pull the additional wagons
+     * The sequence is only walked if it is not the complete sequence of another train.
      * @param wagon the first wagon of a sequence of wagons to be attached
      * @return
      */
     public boolean canAttach(Wagon wagon) {
-        if (wagon == firstWagon) {
+        if (wagon == null || wagon.getTrain() == this) {
             return false;
         }
+        Train source = wagon.getTrain();
+        if (source != null && wagon == source.frontWagon()) {
+            return canAttach(source.type, source.numberOfWagons);
+        }
+
+        // the sequence of a reversed train is read in the order of that train, without rewriting its links
+        boolean backwards = source != null && source.reversed;
+        WagonType sequenceType = wagon.getType();
+        int sequenceLength = 0;
+        for (Wagon current = wagon; current != null; current = backwards ? current.getPreviousWagon() : current.getNextWagon()) {
+            if (current.getType() != sequenceType) {
+                sequenceType = null;
+            }
+            sequenceLength++;
+        }
+        return canAttach(sequenceType, sequenceLength);
+    }
 
-        if (isFreightTrain() && !(wagon instanceof FreightWagon)){
+    /**
+     * Determines if a sequence of the given type and length can be attached to the train
+     * @param sequenceType  the type of all wagons in the sequence, or null if the sequence is mixed
+     * @param sequenceLength  the number of wagons in the sequence
+     * @return
+     */
+    private boolean canAttach(WagonType sequenceType, int sequenceLength) {
+        if (sequenceType == null) {
             return false;
         }
 
-        if (isPassengerTrain() && !(wagon instanceof PassengerWagon)){
+        if (this.type != null && this.type != sequenceType) {
             return false;
         }
 
-        return getNumberOfWagons() < engine.getMaxWagons();
+        return numberOfWagons + sequenceLength <= engine.getMaxWagons();
     }
 
     /**
@@ -207,20 +697,14 @@ public class Train {
      * @return  whether the attachment could be completed successfully
      */
     public boolean attachToRear(Wagon wagon) {
-        if (canAttach(wagon)) {
-            if (firstWagon == null) {
-                if (wagon.hasPreviousWagon()) {
-                    wagon.getPreviousWagon().setNextWagon(null);
-                    wagon.setPreviousWagon(null);
-                }
-                firstWagon = wagon;
-                return true;
-            }
-
-            getLastWagonAttached().attachTail(wagon);
-            return true;
+        if (!canAttach(wagon)) {
+            return false;
         }
-        return false;
+
+        ensureExclusive();
+        detachFromPredecessor(wagon);
+        append(wagon);
+        return true;
     }
 
 
@@ -232,22 +716,14 @@ public class Train {
      * @return  whether the insertion could be completed successfully
      */
     public boolean insertAtFront(Wagon wagon) {
-        if (canAttach(wagon)) {
-            Wagon lastWagon = wagon;
-            while(lastWagon.hasNextWagon()) {
-                lastWagon = lastWagon.getNextWagon();
-            }
-
-            if (firstWagon != null) {
-                firstWagon.setPreviousWagon(lastWagon);
-            }
-            lastWagon.setNextWagon(firstWagon);
-
-            firstWagon = wagon;
-
-            return true;
+        if (!canAttach(wagon)) {
+            return false;
         }
-        return false;
+
+        ensureExclusive();
+        detachFromPredecessor(wagon);
+        prepend(wagon);
+        return true;
     }
 
     /**
@@ -259,27 +735,124 @@ public class Train {
      * @return  whether the insertion could be completed successfully
      */
     public boolean insertAtPosition(int position, Wagon wagon) {
-        if (!canAttach(wagon)) {
+        if (position == 1) {
+            return insertAtFront(wagon);
+        }
+
+        if (position < 1 || position > numberOfWagons || !canAttach(wagon)) {
             return false;
         }
 
-        Wagon currentWagon = findWagonAtPosition(position);
-        if (currentWagon == null) {
-            if (position == 1) {
-                firstWagon = wagon;
-                return true;
-            }
+        ensureExclusive();
+        Wagon currentWagon = wagonAt(position);
+        detachFromPredecessor(wagon);
+        insertBefore(currentWagon, position, wagon);
+        return true;
+    }
+
+    /**
+     * @return  the first wagon of the train, or null if the train has no wagons
+     *          (in O(1), also for a reversed train)
+     */
+    public Wagon peekFirst() {
+        handOutWagons();
+        return frontWagon();
+    }
+
+    /**
+     * @return  the last wagon of the train, or null if the train has no wagons
+     */
+    public Wagon peekLast() {
+        handOutWagons();
+        return rearWagon();
+    }
+
+    /**
+     * Removes the first wagon of the train in O(1)
+     * @return  the removed wagon, or null if the train has no wagons
+     */
+    public Wagon pollFirst() {
+        if (numberOfWagons == 0) {
+            return null;
+        }
+
+        ensureExclusive();
+        Wagon wagon = frontWagon();
+        remove(wagon, 1);
+        return wagon;
+    }
+
+    /**
+     * Removes the last wagon of the train in O(1)
+     * @return  the removed wagon, or null if the train has no wagons
+     */
+    public Wagon pollLast() {
+        if (numberOfWagons == 0) {
+            return null;
+        }
+
+        ensureExclusive();
+        Wagon wagon = rearWagon();
+        remove(wagon, numberOfWagons);
+        return wagon;
+    }
+
+    /**
+     * Tries to insert the given single wagon at the front of the train in O(1).
+     * The wagon is taken out of the train or sequence it is part of (if any),
+     * reconnecting its neighbours there.
+     * No change is made if the wagon is not compatible or the engine has insufficient capacity.
+     * @param wagon
+     * @return  whether the insertion could be completed successfully
+     */
+    public boolean offerFirst(Wagon wagon) {
+        if (!canOffer(wagon)) {
             return false;
         }
 
-        Wagon lastWagonOfInserted = wagon.getLastWagonAttached();
-        lastWagonOfInserted.setNextWagon(currentWagon);
+        ensureExclusive();
+        takeSingle(wagon);
+        prepend(wagon);
+        return true;
+    }
+
+    /**
+     * Tries to attach the given single wagon to the rear of the train in O(1).
+     * The wagon is taken out of the train or sequence it is part of (if any),
+     * reconnecting its neighbours there.
+     * No change is made if the wagon is not compatible or the engine has insufficient capacity.
+     * @param wagon
+     * @return  whether the attachment could be completed successfully
+     */
+    public boolean offerLast(Wagon wagon) {
+        if (!canOffer(wagon)) {
+            return false;
+        }
 
-        currentWagon.getPreviousWagon().setNextWagon(wagon);
-        currentWagon.setPreviousWagon(wagon);
+        ensureExclusive();
+        takeSingle(wagon);
+        append(wagon);
         return true;
     }
 
+    private boolean canOffer(Wagon wagon) {
+        return wagon != null && wagon.getTrain() != this && canAttach(wagon.getType(), 1);
+    }
+
+    /**
+     * Takes the given wagon out of its train or sequence, reconnecting its neighbours.
+     * @param wagon a wagon that is not part of this train
+     */
+    private static void takeSingle(Wagon wagon) {
+        Train source = wagon.getTrain();
+        if (source != null) {
+            source.ensureExclusive();
+            source.remove(wagon);
+        } else {
+            wagon.removeFromSequence();
+        }
+    }
+
     /**
      * Tries to remove one Wagon with the given wagonId from this train
      * and attach it at the rear of the given toTrain
@@ -291,34 +864,75 @@ public class Train {
      * @return  whether the move could be completed successfully
      */
     public boolean moveOneWagon(int wagonId, Train toTrain) {
-        Wagon wagonToMove = findWagonById(wagonId);
-        if (wagonToMove == null || !toTrain.canAttach(wagonToMove)) {
+        Wagon wagonToMove = wagonWithId(wagonId);
+        if (wagonToMove == null || (toTrain != this && !toTrain.canAttach(wagonToMove.getType(), 1))) {
             return false;
         }
 
-        Wagon nextWagon = wagonToMove.getNextWagon();
-        Wagon previousWagon = wagonToMove.getPreviousWagon();
+        if (ensureExclusive()) {
+            wagonToMove = wagonWithId(wagonId);
+        }
+        toTrain.ensureExclusive();
+        remove(wagonToMove);
+        toTrain.append(wagonToMove);
+        return true;
+     }
 
-        if (wagonToMove.hasPreviousWagon()) {
-            if (nextWagon != null) {
-                nextWagon.setPreviousWagon(previousWagon);
-            }
-            if (previousWagon != null) {
-                previousWagon.setNextWagon(nextWagon);
-            }
-        } else {
-            if (nextWagon != null) {
-                nextWagon.setPreviousWagon(null);
+    /**
+     * Tries to remove all wagons with an id in the given set from this train
+     * and attach them, in their current order, at the rear of the given toTrain
+     * The wagons are unlinked in a single pass over this train
+     * and attached to toTrain as one sequence.
+     * No change is made if the removal or attachment cannot be made
+     * (when no wagon can be found, or the trains are not compatible
+     * or the engine of toTrain has insufficient capacity for all found wagons)
+     * @param wagonIds
+     * @param toTrain
+     * @return  whether the move could be completed successfully
+     */
+    public boolean moveWagons(IntHashSet wagonIds, Train toTrain) {
+        if (toTrain == this || !hasWagons() || wagonIds.isEmpty()) {
+            return false;
+        }
+
+        // the wagons that will actually move are counted first, since wagon ids need not be unique in a train
+        int found = 0;
+        for (Wagon wagon : sharedWagons()) {
+            if (wagonIds.contains(wagon.getId())) {
+                found++;
             }
-            setFirstWagon(nextWagon);
+        }
+        if (found == 0 || !toTrain.canAttach(type, found)) {
+            return false;
         }
 
-        wagonToMove.setNextWagon(null);
-        wagonToMove.setPreviousWagon(null);
+        ensureExclusive();
+        toTrain.ensureExclusive();
+        normalize();
+        Wagon segmentFirst = null;
+        Wagon segmentLast = null;
+        Wagon wagon = firstWagon;
+        int position = 1;
+        while (wagon != null) {
+            Wagon next = wagon.getNextWagon();
+            if (wagonIds.contains(wagon.getId())) {
+                unlink(wagon);
+                removed(position, 1);
+                if (segmentLast == null) {
+                    segmentFirst = wagon;
+                } else {
+                    segmentLast.attachTail(wagon);
+                }
+                segmentLast = wagon;
+            } else {
+                position++;
+            }
+            wagon = next;
+        }
 
-        toTrain.attachToRear(wagonToMove);
+        toTrain.append(segmentFirst);
         return true;
-     }
+    }
 
     /**
      * Tries to split this train before the given position and move the complete sequence
@@ -331,53 +945,488 @@ public class Train {
      * @return  whether the move could be completed successfully
      */
     public boolean splitAtPosition(int position, Train toTrain) {
-        Wagon currentWagon = findWagonAtPosition(position);
-        if (currentWagon == null || !toTrain.canAttach(currentWagon)) {
+        int length = numberOfWagons - position + 1;
+        if (position < 1 || position > numberOfWagons || toTrain == this || !toTrain.canAttach(type, length)) {
             return false;
         }
 
-        if (position == 1) {
-            firstWagon = null;
+        ensureExclusive();
+        toTrain.ensureExclusive();
+        normalize();
+        Wagon currentWagon = wagonAt(position);
+        cutTail(currentWagon);
+        toTrain.append(currentWagon);
+        return true;
+    }
+
+    /**
+     * Tries to move the wagons from fromPosition up to and including toPosition of this train
+     * into toTrain, before the wagon at targetPosition of toTrain.
+     * (targetPosition = toTrain.getNumberOfWagons() + 1 attaches them at the rear of toTrain)
+     * The wagons keep their order, and are unlinked and relinked in a single pass along the range.
+     * No change is made if the move cannot be made
+     * (when the positions are not valid for these trains, or the trains are not compatible
+     * or the engine of toTrain has insufficient capacity)
+     * @param fromPosition
+     * @param toPosition
+     * @param toTrain
+     * @param targetPosition
+     * @return  whether the move could be completed successfully
+     */
+    public boolean moveRange(int fromPosition, int toPosition, Train toTrain, int targetPosition) {
+        int length = toPosition - fromPosition + 1;
+        if (fromPosition < 1 || toPosition > numberOfWagons || length < 1 || toTrain == this
+                || targetPosition < 1 || targetPosition > toTrain.numberOfWagons + 1
+                || !toTrain.canAttach(type, length)) {
+            return false;
         }
 
-        if (currentWagon.hasPreviousWagon()) {
-            currentWagon.getPreviousWagon().setNextWagon(null);
+        ensureExclusive();
+        toTrain.ensureExclusive();
+        normalize();
+        Wagon first = wagonAt(fromPosition);
+        Wagon last = first;
+        count(first, -1);
+        for (int i = 1; i < length; i++) {
+            last = last.getNextWagon();
+            count(last, -1);
+        }
+        cutSegment(first, last, fromPosition, length);
+
+        if (targetPosition == toTrain.numberOfWagons + 1) {
+            toTrain.append(first);
+        } else if (targetPosition == 1) {
+            toTrain.prepend(first);
+        } else {
+            toTrain.insertBefore(toTrain.wagonAt(targetPosition), targetPosition, first);
         }
-        currentWagon.setPreviousWagon(null);
-        toTrain.attachToRear(currentWagon);
         return true;
     }
 
+    /**
+     * Removes the wagons from fromPosition up to and including toPosition from this train.
+     * The removed wagons keep their order, and form a sequence that is not part of any train.
+     * @param fromPosition
+     * @param toPosition
+     * @return  the first wagon of the removed sequence,
+     *          or null if the positions are not valid for this train
+     */
+    public Wagon removeRange(int fromPosition, int toPosition) {
+        if (fromPosition < 1 || toPosition > numberOfWagons || fromPosition > toPosition) {
+            return null;
+        }
+
+        ensureExclusive();
+        normalize();
+        Wagon first = wagonAt(fromPosition);
+        Wagon last = first;
+        count(first, -1);
+        for (int i = fromPosition; i < toPosition; i++) {
+            last = last.getNextWagon();
+            count(last, -1);
+        }
+        cutSegment(first, last, fromPosition, toPosition - fromPosition + 1);
+        return first;
+    }
+
     /**
      * Reverses the sequence of wagons in this train (if any)
      * i.e. the last wagon becomes the first wagon
      *      the previous wagon of the last wagon becomes the second wagon
      *      etc.
      * (No change if the train has no wagons or only one wagon)
+     * Only the orientation of the train is changed, the links between the wagons
+     * are only rewritten when the train is changed or one of its wagons is handed out
      */
     public void reverse() {
-        if (getNumberOfWagons() <= 1) {
+        if (numberOfWagons <= 1) {
+            return;
+        }
+
+        reversed = !reversed;
+        version++;
+        structureVersion++;
+        renderedWagons = null;
+        if (listeners != null) {
+            for (TrainListener listener : listeners) {
+                listener.trainReversed(this);
+            }
+        }
+    }
+
+    /**
+     * Sorts the wagons of this train by ascending id
+     */
+    public void sortById() {
+        sort(Comparator.comparingInt(Wagon::getId));
+    }
+
+    /**
+     * Sorts the wagons of this train by an ascending int key,
+     * such as the number of seats or the maximum weight, without boxing the keys
+     * @param key
+     */
+    public void sortBy(ToIntFunction<? super Wagon> key) {
+        sort(Comparator.comparingInt(key));
+    }
+
+    /**
+     * Sorts the wagons of this train with a bottom-up merge sort on the sequence itself,
+     * in O(n log n) without allocating any memory.
+     * The sort is stable: wagons that compare equal keep their order.
+     * During the sort only the links to the next wagons are followed,
+     * the links to the previous wagons are restored in a final pass.
+     * If the comparator throws an exception, the wagons are left in a valid but partially sorted order.
+     * @param comparator
+     */
+    public void sort(Comparator<? super Wagon> comparator) {
+        if (numberOfWagons <= 1) {
+            return;
+        }
+        ensureExclusive();
+        normalize();
+
+        Wagon head = firstWagon;
+        Wagon mergedTail = null;
+        Wagon left = null;
+        Wagon right = null;
+        Wagon remaining = null;
+        try {
+            for (int width = 1; width < numberOfWagons; width *= 2) {
+                remaining = head;
+                head = null;
+                mergedTail = null;
+                while (remaining != null) {
+                    left = remaining;
+                    right = cutAfter(left, width);
+                    remaining = cutAfter(right, width);
+
+                    // taking from the left run on ties keeps the sort stable
+                    while (left != null || right != null) {
+                        Wagon next;
+                        if (right == null || (left != null && comparator.compare(left, right) <= 0)) {
+                            next = left;
+                            left = left.getNextWagon();
+                        } else {
+                            next = right;
+                            right = right.getNextWagon();
+                        }
+                        if (mergedTail == null) {
+                            head = next;
+                        } else {
+                            mergedTail.setNextWagon(next);
+                        }
+                        mergedTail = next;
+                    }
+                }
+            }
+        } finally {
+            // joins the runs that were not merged yet, if the comparator failed
+            Wagon unmerged = join(left, join(right, remaining));
+            if (mergedTail == null) {
+                head = join(head, unmerged);
+            } else {
+                mergedTail.setNextWagon(unmerged);
+            }
+
+            Wagon previous = null;
+            for (Wagon wagon = head; wagon != null; wagon = wagon.getNextWagon()) {
+                wagon.setPreviousWagon(previous);
+                previous = wagon;
+            }
+            firstWagon = head;
+            lastWagon = previous;
+            changed();
+        }
+    }
+
+    /**
+     * Cuts the sequence behind the given number of wagons (following the links to the next wagons only)
+     * @param head  the first wagon of a sequence, or null
+     * @param count
+     * @return  the first wagon behind the cut, or null
+     */
+    private static Wagon cutAfter(Wagon head, int count) {
+        if (head == null) {
+            return null;
+        }
+
+        Wagon wagon = head;
+        for (int i = 1; i < count && wagon.hasNextWagon(); i++) {
+            wagon = wagon.getNextWagon();
+        }
+        Wagon rest = wagon.getNextWagon();
+        wagon.setNextWagon(null);
+        return rest;
+    }
+
+    /**
+     * Links the sequence starting at tail behind the sequence starting at head
+     * (following the links to the next wagons only)
+     * @return  the first wagon of the joined sequence
+     */
+    private static Wagon join(Wagon head, Wagon tail) {
+        if (head == null) {
+            return tail;
+        }
+
+        Wagon wagon = head;
+        while (wagon.hasNextWagon()) {
+            wagon = wagon.getNextWagon();
+        }
+        wagon.setNextWagon(tail);
+        return head;
+    }
+
+    /**
+     * Rewrites the links between the wagons of a reversed train,
+     * so that they follow the order of the train again, before the train is changed.
+     * (No change if the train is not reversed)
+     */
+    private void normalize() {
+        if (!reversed) {
             return;
         }
 
-        setFirstWagon(firstWagon.reverseSequence());
+        ensureExclusive();
+        structureVersion++;
+        reversed = false;
+        Wagon formerFirst = firstWagon;
+        firstWagon = firstWagon.reverseSequence();
+        lastWagon = formerFirst;
     }
 
+    /**
+     * Links the given detached sequence of wagons to the rear of this train.
+     * @param head the first wagon of a sequence that has already been checked by canAttach
+     */
+    private void append(Wagon head) {
+        int position = numberOfWagons + 1;
+        if (reversed) {
+            linkAtPhysicalFront(head.reverseSequence());
+        } else {
+            linkAtPhysicalRear(head);
+        }
+        inserted(position, head, numberOfWagons - position + 1);
+    }
+
+    /**
+     * Links the given detached sequence of wagons to the front of this train.
+     * @param head the first wagon of a sequence that has already been checked by canAttach
+     */
+    private void prepend(Wagon head) {
+        int formerNumberOfWagons = numberOfWagons;
+        if (reversed) {
+            linkAtPhysicalRear(head.reverseSequence());
+        } else {
+            linkAtPhysicalFront(head);
+        }
+        inserted(1, head, numberOfWagons - formerNumberOfWagons);
+    }
+
+    /**
+     * Links the given detached sequence of wagons in front of a wagon of this train.
+     * @param currentWagon  a wagon of this train, but not its first wagon
+     * @param position      the position of currentWagon
+     * @param head the first wagon of a sequence that has already been checked by canAttach
+     */
+    private void insertBefore(Wagon currentWagon, int position, Wagon head) {
+        int formerNumberOfWagons = numberOfWagons;
+        if (reversed) {
+            // the wagon in front of currentWagon is physically behind it
+            Wagon front = currentWagon.detachTail();
+            Wagon reversedHead = head.reverseSequence();
+            Wagon lastOfInserted = adopt(reversedHead);
+            currentWagon.attachTail(reversedHead);
+            lastOfInserted.attachTail(front);
+        } else {
+            Wagon lastOfInserted = adopt(head);
+            Wagon front = currentWagon.detachFront();
+            front.attachTail(head);
+            lastOfInserted.attachTail(currentWagon);
+        }
+        inserted(position, head, numberOfWagons - formerNumberOfWagons);
+    }
+
+    private void linkAtPhysicalRear(Wagon head) {
+        if (firstWagon == null) {
+            firstWagon = head;
+        } else {
+            lastWagon.attachTail(head);
+        }
+        lastWagon = adopt(head);
+    }
+
+    private void linkAtPhysicalFront(Wagon head) {
+        Wagon lastOfInserted = adopt(head);
+        if (firstWagon == null) {
+            lastWagon = lastOfInserted;
+        } else {
+            lastOfInserted.attachTail(firstWagon);
+        }
+        firstWagon = head;
+    }
+
+    /**
+     * Marks all wagons of the sequence starting at head as part of this train
+     * and adds them to the number of wagons of this train.
+     * @param head the first wagon of a sequence that has just been linked into this train
+     * @return  the last wagon of the sequence
+     */
+    private Wagon adopt(Wagon head) {
+        if (type == null) {
+            type = head.getType();
+        }
+
+        Wagon wagon = head;
+        wagon.setTrain(this);
+        count(wagon, 1);
+        while (wagon.hasNextWagon()) {
+            wagon = wagon.getNextWagon();
+            wagon.setTrain(this);
+            count(wagon, 1);
+        }
+        return wagon;
+    }
+
+    /**
+     * Disconnects the given wagon from the wagon in front of it (if any),
+     * updating the train that the wagon was part of.
+     * @param head the first wagon of a sequence that is about to be attached to this train
+     */
+    private void detachFromPredecessor(Wagon head) {
+        Train source = head.getTrain();
+        if (source != null) {
+            source.ensureExclusive();
+            source.normalize();
+            source.cutTail(head);
+        } else {
+            head.detachFront();
+        }
+    }
+
+    /**
+     * Disconnects the sequence of wagons starting at the given wagon from this train.
+     * The wagons of the sequence are no longer part of any train, they are to be adopted by another train.
+     * @param head  a wagon of this train
+     */
+    private void cutTail(Wagon head) {
+        int formerNumberOfWagons = numberOfWagons;
+        for (Wagon wagon = head; wagon != null; wagon = wagon.getNextWagon()) {
+            count(wagon, -1);
+            wagon.setTrain(null);
+        }
+        Wagon front = head.detachFront();
+        lastWagon = front;
+        if (front == null) {
+            firstWagon = null;
+            type = null;
+            reversed = false;
+        }
+        removed(numberOfWagons + 1, formerNumberOfWagons - numberOfWagons);
+    }
+
+    /**
+     * Unlinks the segment of wagons from first up to and including last from this train,
+     * reconnecting the wagons around it. The wagons of the segment are no longer part of any train.
+     * The wagons of the segment must already have been subtracted from the totals of this train.
+     * @param first     a wagon of this train, which is not reversed
+     * @param last      a wagon of this train at or behind first
+     * @param position  the position of first
+     * @param count     the number of wagons of the segment
+     */
+    private void cutSegment(Wagon first, Wagon last, int position, int count) {
+        Wagon front = first.detachFront();
+        Wagon back = last.detachTail();
+        if (front != null && back != null) {
+            front.attachTail(back);
+        }
+        if (first == firstWagon) {
+            firstWagon = back;
+        }
+        if (last == lastWagon) {
+            lastWagon = front;
+        }
+        for (Wagon wagon = first; wagon != null; wagon = wagon.getNextWagon()) {
+            wagon.setTrain(null);
+        }
+        if (numberOfWagons == 0) {
+            type = null;
+        }
+        removed(position, count);
+    }
+
+    /**
+     * Removes a single wagon from this train, reconnecting its neighbours.
+     * Its position is only looked up when the train has listeners.
+     * @param wagon a wagon of this train
+     */
+    private void remove(Wagon wagon) {
+        remove(wagon, listeners == null ? 0 : positionOf(wagon));
+    }
+
+    /**
+     * @param wagon     a wagon of this train
+     * @param position  the position of the wagon
+     */
+    private void remove(Wagon wagon, int position) {
+        unlink(wagon);
+        removed(position, 1);
+    }
+
+    /**
+     * @param wagon a wagon of this train
+     * @return  the position of the wagon, counted from the wagon towards the front of the train
+     */
+    private int positionOf(Wagon wagon) {
+        int position = 1;
+        for (Wagon front = wagon; front != frontWagon(); position++) {
+            front = reversed ? front.getNextWagon() : front.getPreviousWagon();
+        }
+        return position;
+    }
+
+    /**
+     * Removes a single wagon from this train, reconnecting its neighbours,
+     * without notifying the listeners of this train.
+     * @param wagon a wagon of this train
+     */
+    private void unlink(Wagon wagon) {
+        if (wagon == firstWagon) {
+            firstWagon = wagon.getNextWagon();
+        }
+        if (wagon == lastWagon) {
+            lastWagon = wagon.getPreviousWagon();
+        }
+        wagon.removeFromSequence();
+        wagon.setTrain(null);
+
+        count(wagon, -1);
+        if (numberOfWagons == 0) {
+            type = null;
+            reversed = false;
+        }
+    }
+
+    /**
+     * The result is cached until the train, one of its wagons or its locomotive changes.
+     * Only a change of the sequence or the ids of the wagons renders the wagons again,
+     * other changes only render the summary.
+     */
     @Override
     public String toString() {
+        if (rendered != null && renderedVersion == version && renderedLocNumber == engine.getLocNumber()) {
+            return rendered;
+        }
+
+        if (renderedWagons == null) {
+            renderedWagons = renderWagons();
+        }
         StringBuilder stringBuilder = new StringBuilder();
 
         stringBuilder.append("[Loc-").append(engine.getLocNumber()).append("]");
 
-        int numberOfWagons = getNumberOfWagons();
-        Wagon wagon = this.firstWagon;
-        if (wagon != null) {
-            for (int i = 0; i < numberOfWagons; i++) {
-                stringBuilder.append(wagon.toString());
-                wagon = wagon.getNextWagon();
-            }
-            stringBuilder.append(" ");
-        }
+        stringBuilder.append(renderedWagons);
 
         stringBuilder.append("with ")
                 .append(numberOfWagons)
@@ -388,6 +1437,22 @@ public class Train {
 
         stringBuilder.append("\n").append("Total number of seats: ").append(getTotalNumberOfSeats());
 
+        rendered = stringBuilder.toString();
+        renderedVersion = version;
+        renderedLocNumber = engine.getLocNumber();
+        return rendered;
+    }
+
+    private String renderWagons() {
+        if (this.firstWagon == null) {
+            return "";
+        }
+
+        StringBuilder stringBuilder = new StringBuilder();
+        for (Wagon wagon : sharedWagons()) {
+            stringBuilder.append(wagon.toString());
+        }
+        stringBuilder.append(" ");
         return stringBuilder.toString();
     }
 }
@@ -0,0 +1,211 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * An index of trains by route (origin and destination),
+ * with the trains of every route kept sorted by total number of seats and by total maximum weight.
+ * Range queries take O(log n + k) for k trains found.
+ * The catalog listens to its trains; changed trains are re-indexed before the next query.
+ */
+public class TrainCatalog implements TrainListener {
+    private static final Comparator<Entry> BY_SEATS =
+            Comparator.<Entry>comparingInt(entry -> entry.seats).thenComparingLong(entry -> entry.serial);
+    private static final Comparator<Entry> BY_MAX_WEIGHT =
+            Comparator.<Entry>comparingInt(entry -> entry.maxWeight).thenComparingLong(entry -> entry.serial);
+
+    private final Map<Route, RouteIndex> routes = new HashMap<>();
+    private final Map<Train, Entry> entries = new HashMap<>();
+    private final Set<Train> changedTrains = new LinkedHashSet<>();
+    private long nextSerial;
+
+    /**
+     * The indexed totals of a train, as they were when the train was last indexed.
+     */
+    private static class Entry {
+        private final Train train;
+        private final long serial;
+        private int seats;
+        private int maxWeight;
+
+        private Entry(Train train, long serial, int seats, int maxWeight) {
+            this.train = train;
+            this.serial = serial;
+            this.seats = seats;
+            this.maxWeight = maxWeight;
+        }
+    }
+
+    private static class RouteIndex {
+        private final NavigableSet<Entry> bySeats = new TreeSet<>(BY_SEATS);
+        private final NavigableSet<Entry> byMaxWeight = new TreeSet<>(BY_MAX_WEIGHT);
+
+        private void add(Entry entry) {
+            bySeats.add(entry);
+            byMaxWeight.add(entry);
+        }
+
+        private void remove(Entry entry) {
+            bySeats.remove(entry);
+            byMaxWeight.remove(entry);
+        }
+    }
+
+    /**
+     * Adds a train to the catalog (no change if it is already in the catalog)
+     * @param train
+     */
+    public void add(Train train) {
+        if (entries.containsKey(train)) {
+            return;
+        }
+
+        Entry entry = new Entry(train, nextSerial++, train.getTotalNumberOfSeats(), train.getTotalMaxWeight());
+        entries.put(train, entry);
+        routes.computeIfAbsent(Route.of(train), route -> new RouteIndex()).add(entry);
+        train.addListener(this);
+    }
+
+    public void addAll(Collection<Train> trains) {
+        for (Train train : trains) {
+            add(train);
+        }
+    }
+
+    /**
+     * Removes a train from the catalog
+     * @param train
+     * @return  whether the train was part of the catalog
+     */
+    public boolean remove(Train train) {
+        Entry entry = entries.remove(train);
+        if (entry == null) {
+            return false;
+        }
+
+        changedTrains.remove(train);
+        Route route = Route.of(train);
+        RouteIndex index = routes.get(route);
+        index.remove(entry);
+        if (index.bySeats.isEmpty()) {
+            routes.remove(route);
+        }
+        train.removeListener(this);
+        return true;
+    }
+
+    public boolean contains(Train train) {
+        return entries.containsKey(train);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public void trainChanged(Train train) {
+        changedTrains.add(train);
+    }
+
+    /**
+     * @param origin
+     * @param destination
+     * @return  all trains between origin and destination, by ascending number of seats
+     */
+    public List<Train> findTrains(String origin, String destination) {
+        return findTrainsBySeats(origin, destination, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param origin
+     * @param destination
+     * @param minSeats
+     * @return  the trains between origin and destination with at least minSeats seats,
+     *          by ascending number of seats
+     */
+    public List<Train> findTrainsWithSeats(String origin, String destination, int minSeats) {
+        return findTrainsBySeats(origin, destination, minSeats, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param origin
+     * @param destination
+     * @param minSeats
+     * @param maxSeats
+     * @return  the trains between origin and destination with a total number of seats
+     *          between minSeats and maxSeats (inclusive), by ascending number of seats
+     */
+    public List<Train> findTrainsBySeats(String origin, String destination, int minSeats, int maxSeats) {
+        RouteIndex index = indexOf(origin, destination);
+        if (index == null || minSeats > maxSeats) {
+            return new ArrayList<>();
+        }
+
+        return trainsOf(index.bySeats.subSet(
+                new Entry(null, Long.MIN_VALUE, minSeats, 0), true,
+                new Entry(null, Long.MAX_VALUE, maxSeats, 0), true));
+    }
+
+    /**
+     * @param origin
+     * @param destination
+     * @param minWeight
+     * @param maxWeight
+     * @return  the trains between origin and destination with a total maximum weight
+     *          between minWeight and maxWeight (inclusive), by ascending maximum weight
+     */
+    public List<Train> findTrainsByMaxWeight(String origin, String destination, int minWeight, int maxWeight) {
+        RouteIndex index = indexOf(origin, destination);
+        if (index == null || minWeight > maxWeight) {
+            return new ArrayList<>();
+        }
+
+        return trainsOf(index.byMaxWeight.subSet(
+                new Entry(null, Long.MIN_VALUE, 0, minWeight), true,
+                new Entry(null, Long.MAX_VALUE, 0, maxWeight), true));
+    }
+
+    private RouteIndex indexOf(String origin, String destination) {
+        reindexChangedTrains();
+        return routes.get(new Route(origin, destination));
+    }
+
+    private List<Train> trainsOf(Collection<Entry> found) {
+        List<Train> trains = new ArrayList<>(found.size());
+        for (Entry entry : found) {
+            trains.add(entry.train);
+        }
+        return trains;
+    }
+
+    /**
+     * Moves the entries of all trains that changed since the previous query
+     * to their new place in the sorted indexes.
+     */
+    private void reindexChangedTrains() {
+        for (Train train : changedTrains) {
+            Entry entry = entries.get(train);
+            int seats = train.getTotalNumberOfSeats();
+            int maxWeight = train.getTotalMaxWeight();
+            if (entry.seats == seats && entry.maxWeight == maxWeight) {
+                continue;
+            }
+
+            RouteIndex index = routes.get(Route.of(train));
+            index.remove(entry);
+            entry.seats = seats;
+            entry.maxWeight = maxWeight;
+            index.add(entry);
+        }
+        changedTrains.clear();
+    }
+}
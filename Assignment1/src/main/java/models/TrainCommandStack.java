@@ -0,0 +1,271 @@
+package models;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Performs operations on trains and records them, so they can be undone and redone.
+ * Every operation is recorded as a compact command with the trains, positions and wagons
+ * that are needed to invert it, rather than a copy of the trains.
+ * Undoing or redoing a command takes at most a lookup of a position in a train.
+ *
+ * At most capacity commands can be undone; older commands are dropped.
+ * A new operation clears the commands that can be redone.
+ * Commands assume that the trains are only changed through this stack in between,
+ * undo and redo throw an IllegalStateException if a command can no longer be applied.
+ */
+public class TrainCommandStack {
+    private static final byte ATTACH_TO_REAR = 1;
+    private static final byte INSERT_AT_POSITION = 2;
+    private static final byte MOVE_ONE_WAGON = 3;
+    private static final byte SPLIT_AT_POSITION = 4;
+    private static final byte REVERSE = 5;
+
+    /**
+     * An operation and what is needed to undo and redo it.
+     */
+    private static class Command {
+        private final byte operation;
+        private final Train train;
+        private final Wagon wagon;
+        // the position in train of the first wagon that the operation moved there
+        private final int position;
+        // the train that the wagons came from, if any
+        private final Train otherTrain;
+        // the position in otherTrain of the first wagon that the operation moved from there
+        private final int otherPosition;
+        // the number of wagons that the operation moved
+        private final int count;
+        // the wagon that a free sequence was linked behind, if any
+        private final Wagon predecessor;
+
+        private Command(byte operation, Train train, Wagon wagon, int position,
+                        Train otherTrain, int otherPosition, int count, Wagon predecessor) {
+            this.operation = operation;
+            this.train = train;
+            this.wagon = wagon;
+            this.position = position;
+            this.otherTrain = otherTrain;
+            this.otherPosition = otherPosition;
+            this.count = count;
+            this.predecessor = predecessor;
+        }
+    }
+
+    private final int capacity;
+    private final Deque<Command> undoCommands = new ArrayDeque<>();
+    private final Deque<Command> redoCommands = new ArrayDeque<>();
+
+    /**
+     * @param capacity  the number of operations that can be undone
+     */
+    public TrainCommandStack(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    public TrainCommandStack() {
+        this(100);
+    }
+
+    public boolean canUndo() {
+        return !undoCommands.isEmpty();
+    }
+
+    public boolean canRedo() {
+        return !redoCommands.isEmpty();
+    }
+
+    /**
+     * Forgets all commands.
+     */
+    public void clear() {
+        undoCommands.clear();
+        redoCommands.clear();
+    }
+
+    /**
+     * @see Train#attachToRear(Wagon)
+     */
+    public boolean attachToRear(Train train, Wagon wagon) {
+        Train source = wagon.getTrain();
+        Wagon predecessor = source == null ? wagon.getPreviousWagon() : null;
+        int numberOfWagons = train.getNumberOfWagons();
+        if (!train.attachToRear(wagon)) {
+            return false;
+        }
+
+        push(new Command(ATTACH_TO_REAR, train, wagon, numberOfWagons + 1,
+                source, source == null ? 0 : source.getNumberOfWagons() + 1,
+                train.getNumberOfWagons() - numberOfWagons, predecessor));
+        return true;
+    }
+
+    /**
+     * @see Train#insertAtPosition(int, Wagon)
+     */
+    public boolean insertAtPosition(Train train, int position, Wagon wagon) {
+        Train source = wagon.getTrain();
+        Wagon predecessor = source == null ? wagon.getPreviousWagon() : null;
+        int numberOfWagons = train.getNumberOfWagons();
+        if (!train.insertAtPosition(position, wagon)) {
+            return false;
+        }
+
+        push(new Command(INSERT_AT_POSITION, train, wagon, position,
+                source, source == null ? 0 : source.getNumberOfWagons() + 1,
+                train.getNumberOfWagons() - numberOfWagons, predecessor));
+        return true;
+    }
+
+    /**
+     * @see Train#moveOneWagon(int, Train)
+     */
+    public boolean moveOneWagon(Train fromTrain, int wagonId, Train toTrain) {
+        int position = fromTrain.findPositionById(wagonId);
+        Wagon wagon = fromTrain.findWagonById(wagonId);
+        if (!fromTrain.moveOneWagon(wagonId, toTrain)) {
+            return false;
+        }
+
+        push(new Command(MOVE_ONE_WAGON, toTrain, wagon, toTrain.getNumberOfWagons(), fromTrain, position, 1, null));
+        return true;
+    }
+
+    /**
+     * @see Train#splitAtPosition(int, Train)
+     */
+    public boolean splitAtPosition(Train fromTrain, int position, Train toTrain) {
+        int count = fromTrain.getNumberOfWagons() - position + 1;
+        if (!fromTrain.splitAtPosition(position, toTrain)) {
+            return false;
+        }
+
+        push(new Command(SPLIT_AT_POSITION, toTrain, null, toTrain.getNumberOfWagons() - count + 1,
+                fromTrain, position, count, null));
+        return true;
+    }
+
+    /**
+     * @see Train#reverse()
+     */
+    public void reverse(Train train) {
+        train.reverse();
+        push(new Command(REVERSE, train, null, 0, null, 0, 0, null));
+    }
+
+    /**
+     * Undoes the latest operation that has not been undone
+     * @return  whether there was an operation to undo
+     */
+    public boolean undo() {
+        Command command = undoCommands.peekLast();
+        if (command == null) {
+            return false;
+        }
+
+        if (!invert(command)) {
+            throw new IllegalStateException("Cannot undo, the trains have been changed outside of this stack");
+        }
+        redoCommands.addLast(undoCommands.removeLast());
+        return true;
+    }
+
+    /**
+     * Redoes the latest operation that has been undone
+     * @return  whether there was an operation to redo
+     */
+    public boolean redo() {
+        Command command = redoCommands.peekLast();
+        if (command == null) {
+            return false;
+        }
+
+        if (!apply(command)) {
+            throw new IllegalStateException("Cannot redo, the trains have been changed outside of this stack");
+        }
+        undoCommands.addLast(redoCommands.removeLast());
+        return true;
+    }
+
+    private void push(Command command) {
+        redoCommands.clear();
+        undoCommands.addLast(command);
+        if (undoCommands.size() > capacity) {
+            undoCommands.removeFirst();
+        }
+    }
+
+    private static boolean apply(Command command) {
+        switch (command.operation) {
+            case ATTACH_TO_REAR:
+                return command.train.attachToRear(command.wagon);
+            case INSERT_AT_POSITION:
+                return command.train.insertAtPosition(command.position, command.wagon);
+            case MOVE_ONE_WAGON:
+                return command.otherTrain.moveOneWagon(command.wagon.getId(), command.train);
+            case SPLIT_AT_POSITION:
+                return command.otherTrain.splitAtPosition(command.otherPosition, command.train);
+            case REVERSE:
+                command.train.reverse();
+                return true;
+            default:
+                throw new IllegalStateException("Unknown operation " + command.operation);
+        }
+    }
+
+    private static boolean invert(Command command) {
+        Train train = command.train;
+        switch (command.operation) {
+            case ATTACH_TO_REAR:
+            case INSERT_AT_POSITION:
+                return takeBack(command);
+            case MOVE_ONE_WAGON:
+                if (train.findWagonAtPosition(command.position) != command.wagon) {
+                    return false;
+                }
+                if (command.otherTrain == train) {
+                    // a wagon moved to the rear of its own train
+                    Wagon wagon = train.removeRange(command.position, command.position);
+                    return wagon != null && (command.otherPosition == command.position
+                            ? train.attachToRear(wagon)
+                            : train.insertAtPosition(command.otherPosition, wagon));
+                }
+                return train.moveRange(command.position, command.position, command.otherTrain, command.otherPosition);
+            case SPLIT_AT_POSITION:
+                return train.splitAtPosition(command.position, command.otherTrain);
+            case REVERSE:
+                train.reverse();
+                return true;
+            default:
+                throw new IllegalStateException("Unknown operation " + command.operation);
+        }
+    }
+
+    /**
+     * Returns the wagons that were attached or inserted to the train they came from,
+     * or to their free predecessor if they were not part of a train.
+     */
+    private static boolean takeBack(Command command) {
+        int lastPosition = command.position + command.count - 1;
+        if (command.train.findWagonAtPosition(command.position) != command.wagon) {
+            return false;
+        }
+        if (command.otherTrain != null) {
+            return command.train.moveRange(command.position, lastPosition, command.otherTrain, command.otherPosition);
+        }
+        // the predecessor must still be free to take the wagons, before they are removed from the train
+        Wagon predecessor = command.predecessor;
+        if (predecessor != null && (predecessor.hasNextWagon() || predecessor.getTrain() != null)) {
+            return false;
+        }
+
+        Wagon head = command.train.removeRange(command.position, lastPosition);
+        if (head != null && predecessor != null) {
+            predecessor.attachTail(head);
+        }
+        return head != null;
+    }
+}
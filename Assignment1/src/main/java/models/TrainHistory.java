@@ -0,0 +1,288 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * The history of the configuration (the wagon ids from front to rear) of one train,
+ * kept as a listener of that train.
+ * Every change of the wagons becomes a new version, which stores the edit reported by the train
+ * (wagons inserted or removed at a position, a reversal or a new id) as a compact array of ints,
+ * without reading the train. Every checkpointInterval versions, and after changes that the train
+ * does not report as an edit (such as a sort), the complete configuration is stored instead,
+ * so the configuration at any version is found by replaying at most checkpointInterval edits
+ * from the nearest checkpoint before it. Changes of other properties of the wagons are ignored.
+ *
+ * At most maxVersions versions are retained; older versions are dropped
+ * one checkpoint interval at a time, so the oldest retained version always is a checkpoint.
+ */
+public class TrainHistory implements TrainListener {
+    // REVERSE
+    private static final int REVERSE = 0;
+    // REMOVE, position, count
+    private static final int REMOVE = 1;
+    // INSERT, position, count, the ids
+    private static final int INSERT = 2;
+    // RENAME, position, new id
+    private static final int RENAME = 3;
+
+    /**
+     * One version: either a checkpoint with the complete configuration, or the edit from the previous version
+     */
+    private static class Version {
+        private final long time;
+        private final int[] checkpoint;
+        private final int[] edit;
+
+        private Version(long time, int[] checkpoint, int[] edit) {
+            this.time = time;
+            this.checkpoint = checkpoint;
+            this.edit = edit;
+        }
+    }
+
+    private final Train train;
+    private final int checkpointInterval;
+    private final int maxVersions;
+    private final LongSupplier clock;
+
+    private final List<Version> versions = new ArrayList<>();
+    // the version number of versions.get(0)
+    private long oldestVersion;
+
+    /**
+     * Starts the history of a train with its current configuration as version 0
+     * @param train
+     * @param checkpointInterval    the number of versions from one checkpoint to the next
+     * @param maxVersions           the number of versions to retain, at least checkpointInterval
+     * @param clock                 gives the time of every version, e.g. System::currentTimeMillis
+     */
+    public TrainHistory(Train train, int checkpointInterval, int maxVersions, LongSupplier clock) {
+        if (checkpointInterval < 1 || maxVersions < checkpointInterval) {
+            throw new IllegalArgumentException("The checkpoint interval must be positive and at most the number of versions to retain");
+        }
+        this.train = train;
+        this.checkpointInterval = checkpointInterval;
+        this.maxVersions = maxVersions;
+        this.clock = clock;
+
+        versions.add(new Version(clock.getAsLong(), idsOf(train), null));
+        train.addListener(this);
+    }
+
+    public TrainHistory(Train train) {
+        this(train, 64, 10_000, System::currentTimeMillis);
+    }
+
+    /**
+     * Stops recording the changes of the train.
+     */
+    public void detach() {
+        train.removeListener(this);
+    }
+
+    public Train getTrain() {
+        return train;
+    }
+
+    /**
+     * @return  the number of the latest version
+     */
+    public long getVersion() {
+        return oldestVersion + versions.size() - 1;
+    }
+
+    /**
+     * @return  the number of the oldest version that is still retained
+     */
+    public long getOldestVersion() {
+        return oldestVersion;
+    }
+
+    /**
+     * @param version
+     * @return  the time at which the train got the given version
+     */
+    public long getTime(long version) {
+        return versions.get(indexOf(version)).time;
+    }
+
+    /**
+     * @param version   a retained version
+     * @return  the wagon ids of the train at that version, from front to rear
+     */
+    public int[] getConfiguration(long version) {
+        int index = indexOf(version);
+        int checkpoint = index;
+        while (versions.get(checkpoint).checkpoint == null) {
+            checkpoint--;
+        }
+        if (checkpoint == index) {
+            return versions.get(index).checkpoint.clone();
+        }
+
+        int[] ids = versions.get(checkpoint).checkpoint;
+        for (int i = checkpoint + 1; i <= index; i++) {
+            ids = apply(ids, versions.get(i).edit);
+        }
+        return ids;
+    }
+
+    /**
+     * @param time
+     * @return  the version the train had at the given time, being the latest version from that time or before
+     */
+    public long getVersionAt(long time) {
+        int low = 0;
+        int high = versions.size() - 1;
+        if (versions.get(0).time > time) {
+            throw new IllegalArgumentException("No version is retained from time " + time + " or before");
+        }
+        // find the last version with a time at or before the given time
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (versions.get(middle).time <= time) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return oldestVersion + low;
+    }
+
+    /**
+     * @param time
+     * @return  the wagon ids of the train at the given time, from front to rear
+     */
+    public int[] getConfigurationAt(long time) {
+        return getConfiguration(getVersionAt(time));
+    }
+
+    private int indexOf(long version) {
+        if (version < oldestVersion || version > getVersion()) {
+            throw new IllegalArgumentException("Version " + version + " is not retained, only versions "
+                    + oldestVersion + " to " + getVersion() + " are");
+        }
+        return (int) (version - oldestVersion);
+    }
+
+    /**
+     * A change that the train does not report as an edit, which is stored as a checkpoint.
+     */
+    @Override
+    public void trainChanged(Train train) {
+        record(null);
+    }
+
+    /**
+     * Other properties of the wagons are not part of the configuration.
+     */
+    @Override
+    public void wagonChanged(Train train, Wagon wagon) {
+    }
+
+    @Override
+    public void wagonRenamed(Train train, Wagon wagon, int formerId) {
+        int position = 1;
+        for (Wagon other : train.sharedWagons()) {
+            if (other == wagon) {
+                break;
+            }
+            position++;
+        }
+        record(new int[] { RENAME, position, wagon.getId() });
+    }
+
+    @Override
+    public void wagonsInserted(Train train, int position, int[] wagonIds) {
+        int[] edit = new int[3 + wagonIds.length];
+        edit[0] = INSERT;
+        edit[1] = position;
+        edit[2] = wagonIds.length;
+        System.arraycopy(wagonIds, 0, edit, 3, wagonIds.length);
+        record(edit);
+    }
+
+    @Override
+    public void wagonsRemoved(Train train, int position, int count) {
+        record(new int[] { REMOVE, position, count });
+    }
+
+    @Override
+    public void trainReversed(Train train) {
+        record(new int[] { REVERSE });
+    }
+
+    /**
+     * Adds a version with the given edit, or a checkpoint of the train if it is due or the edit is null
+     */
+    private void record(int[] edit) {
+        long time = clock.getAsLong();
+        if (edit == null || (oldestVersion + versions.size()) % checkpointInterval == 0) {
+            versions.add(new Version(time, idsOf(train), null));
+        } else {
+            versions.add(new Version(time, null, edit));
+        }
+
+        if (versions.size() > maxVersions) {
+            // drop the oldest versions up to the first checkpoint that is not the oldest version itself
+            int drop = 1;
+            while (versions.get(drop).checkpoint == null) {
+                drop++;
+            }
+            versions.subList(0, drop).clear();
+            oldestVersion += drop;
+        }
+    }
+
+    private static int[] idsOf(Train train) {
+        int[] ids = new int[train.getNumberOfWagons()];
+        int position = 0;
+        for (Wagon wagon : train.sharedWagons()) {
+            ids[position++] = wagon.getId();
+        }
+        return ids;
+    }
+
+    /**
+     * @param ids   a configuration, which is not changed
+     * @param edit
+     * @return  the configuration after the edit
+     */
+    private static int[] apply(int[] ids, int[] edit) {
+        switch (edit[0]) {
+            case REVERSE: {
+                int[] reversed = new int[ids.length];
+                for (int i = 0; i < ids.length; i++) {
+                    reversed[i] = ids[ids.length - 1 - i];
+                }
+                return reversed;
+            }
+            case REMOVE: {
+                int from = edit[1] - 1;
+                int count = edit[2];
+                int[] remaining = new int[ids.length - count];
+                System.arraycopy(ids, 0, remaining, 0, from);
+                System.arraycopy(ids, from + count, remaining, from, ids.length - from - count);
+                return remaining;
+            }
+            case INSERT: {
+                int at = edit[1] - 1;
+                int count = edit[2];
+                int[] extended = new int[ids.length + count];
+                System.arraycopy(ids, 0, extended, 0, at);
+                System.arraycopy(edit, 3, extended, at, count);
+                System.arraycopy(ids, at, extended, at + count, ids.length - at);
+                return extended;
+            }
+            case RENAME: {
+                int[] renamed = ids.clone();
+                renamed[edit[1] - 1] = edit[2];
+                return renamed;
+            }
+            default:
+                throw new IllegalStateException("Unknown edit " + edit[0] + " in history");
+        }
+    }
+}
@@ -0,0 +1,595 @@
+package models;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A write-ahead journal of operations on a fleet of trains, with periodic snapshots.
+ * Trains are created and changed through the journal, which identifies them by a train id.
+ * Every successful operation is appended as a compact binary record.
+ * Records are buffered and forced to disk in groups (group commit):
+ * an operation is durable after the commit of its group, or after an explicit {@link #commit()}.
+ * After every snapshotInterval operations a snapshot of all trains is written and the journal restarts,
+ * so recovery never has to replay more than snapshotInterval operations.
+ * Changes of the properties of the wagons (id, seats, maximum weight and load) are made through the wagons
+ * themselves; the journal listens to its trains and records them as operations too.
+ * A failure to write such a change is thrown as an UncheckedIOException from the setter of the wagon.
+ * Once the journal is closed it stops listening, and its trains can be changed without being recorded.
+ *
+ * Files in the directory:
+ *      snapshot.bin            the latest snapshot, naming the generation of the journal that follows it
+ *      journal-[generation].log   the operations after that snapshot
+ */
+public class TrainJournal implements Closeable {
+    private static final String SNAPSHOT = "snapshot.bin";
+    private static final int SNAPSHOT_MAGIC = 0x54524e53;
+
+    private static final byte CREATE_TRAIN = 1;
+    private static final byte ATTACH_TO_REAR = 2;
+    private static final byte MOVE_ONE_WAGON = 3;
+    private static final byte SPLIT_AT_POSITION = 4;
+    private static final byte REVERSE = 5;
+    private static final byte CHANGE_WAGON = 6;
+    private static final byte RENAME_WAGON = 7;
+
+    // id, type, seats or maximum weight, and load
+    private static final int WAGON_BYTES = 13;
+
+    private final Path directory;
+    private final int groupSize;
+    private final int snapshotInterval;
+    private final Map<Integer, Train> trains = new LinkedHashMap<>();
+    private final Map<Integer, WagonRecorder> recorders = new HashMap<>();
+    private final ByteBuffer buffer;
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer record = ByteBuffer.allocate(256);
+
+    private FileChannel journal;
+    private long generation;
+    private int nextTrainId;
+    private int uncommittedOperations;
+    private int operationsSinceSnapshot;
+
+    private TrainJournal(Path directory, int groupSize, int snapshotInterval, int bufferSize) {
+        this.directory = directory;
+        this.groupSize = groupSize;
+        this.snapshotInterval = snapshotInterval;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Opens the journal in the given directory, restoring all trains
+     * from the latest snapshot and the operations journaled after it.
+     * @param directory
+     * @param groupSize         the number of operations that are forced to disk together
+     * @param snapshotInterval  the number of operations after which a new snapshot is taken
+     * @return  the journal, ready to record further operations
+     * @throws IOException
+     */
+    public static TrainJournal open(Path directory, int groupSize, int snapshotInterval) throws IOException {
+        if (groupSize < 1 || snapshotInterval < 1) {
+            throw new IllegalArgumentException("Group size and snapshot interval must be positive");
+        }
+
+        Files.createDirectories(directory);
+        TrainJournal trainJournal = new TrainJournal(directory, groupSize, snapshotInterval, 64 * 1024);
+        trainJournal.recover();
+        // the changes replayed during recovery are not journaled again
+        trainJournal.trains.forEach(trainJournal::listenTo);
+        return trainJournal;
+    }
+
+    public static TrainJournal open(Path directory) throws IOException {
+        return open(directory, 64, 100_000);
+    }
+
+    /**
+     * The trains are not copied: the properties of their wagons may be changed directly, and are recorded,
+     * but their wagons must only be attached, moved, split or reversed through this journal.
+     * Other changes of the sequence of wagons of a train are not recorded, and are lost on recovery.
+     * @return  all trains by their train id
+     */
+    public Map<Integer, Train> getTrains() {
+        return Collections.unmodifiableMap(trains);
+    }
+
+    /**
+     * @param trainId
+     * @return  the train with the given id, or null; see {@link #getTrains()} for the changes that are recorded
+     */
+    public Train getTrain(int trainId) {
+        return trains.get(trainId);
+    }
+
+    /**
+     * Creates a new train without wagons
+     * @return  the id of the new train
+     */
+    public int createTrain(Locomotive engine, String origin, String destination) throws IOException {
+        int trainId = nextTrainId++;
+        Train train = new Train(engine, origin, destination);
+        trains.put(trainId, train);
+        listenTo(trainId, train);
+
+        startRecord(CREATE_TRAIN);
+        record.putInt(trainId).putInt(engine.getLocNumber()).putInt(engine.getMaxWagons());
+        putString(origin);
+        putString(destination);
+        endRecord();
+        return trainId;
+    }
+
+    /**
+     * Attaches a sequence of new wagons to the rear of a train, see {@link Train#attachToRear(Wagon)}
+     * @param trainId
+     * @param wagon the first wagon of a sequence that is not part of any train
+     * @return  whether the attachment could be completed successfully
+     */
+    public boolean attachToRear(int trainId, Wagon wagon) throws IOException {
+        if (wagon.getTrain() != null) {
+            throw new IllegalArgumentException("Wagon " + wagon + " is part of a train, move it with moveOneWagon or splitAtPosition");
+        }
+        // the sequence is recorded before the attachment, which may relink it in the order of a reversed train
+        startRecord(ATTACH_TO_REAR);
+        record.putInt(trainId);
+        int countPosition = record.position();
+        record.putInt(0);
+        int count = 0;
+        for (Wagon current = wagon; current != null; current = current.getNextWagon()) {
+            ensureRecordCapacity(WAGON_BYTES);
+            putWagon(record, current);
+            count++;
+        }
+        record.putInt(countPosition, count);
+
+        if (!train(trainId).attachToRear(wagon)) {
+            return false;
+        }
+        endRecord();
+        return true;
+    }
+
+    /**
+     * @see Train#moveOneWagon(int, Train)
+     */
+    public boolean moveOneWagon(int fromTrainId, int wagonId, int toTrainId) throws IOException {
+        if (!train(fromTrainId).moveOneWagon(wagonId, train(toTrainId))) {
+            return false;
+        }
+
+        startRecord(MOVE_ONE_WAGON);
+        record.putInt(fromTrainId).putInt(wagonId).putInt(toTrainId);
+        endRecord();
+        return true;
+    }
+
+    /**
+     * @see Train#splitAtPosition(int, Train)
+     */
+    public boolean splitAtPosition(int fromTrainId, int position, int toTrainId) throws IOException {
+        if (!train(fromTrainId).splitAtPosition(position, train(toTrainId))) {
+            return false;
+        }
+
+        startRecord(SPLIT_AT_POSITION);
+        record.putInt(fromTrainId).putInt(position).putInt(toTrainId);
+        endRecord();
+        return true;
+    }
+
+    /**
+     * @see Train#reverse()
+     */
+    public void reverse(int trainId) throws IOException {
+        train(trainId).reverse();
+
+        startRecord(REVERSE);
+        record.putInt(trainId);
+        endRecord();
+    }
+
+    /**
+     * Records the changes of the properties of the wagons of one train.
+     * Every other change of the train is an operation of the journal, which records it itself.
+     */
+    private void listenTo(int trainId, Train train) {
+        WagonRecorder recorder = new WagonRecorder(trainId);
+        recorders.put(trainId, recorder);
+        train.addListener(recorder);
+    }
+
+    private class WagonRecorder implements TrainListener {
+        private final int trainId;
+
+        private WagonRecorder(int trainId) {
+            this.trainId = trainId;
+        }
+
+        @Override
+        public void trainChanged(Train train) {
+        }
+
+        @Override
+        public void wagonChanged(Train train, Wagon wagon) {
+            startRecord(CHANGE_WAGON);
+            record.putInt(trainId);
+            putWagon(record, wagon);
+            endChangeRecord();
+        }
+
+        @Override
+        public void wagonRenamed(Train train, Wagon wagon, int formerId) {
+            startRecord(RENAME_WAGON);
+            record.putInt(trainId).putInt(formerId).putInt(wagon.getId());
+            endChangeRecord();
+        }
+
+        private void endChangeRecord() {
+            try {
+                endRecord();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Writes all buffered operations to the journal and forces them to disk.
+     */
+    public void commit() throws IOException {
+        flush();
+        journal.force(false);
+        uncommittedOperations = 0;
+    }
+
+    /**
+     * Writes a snapshot of all trains and starts a new, empty journal after it.
+     */
+    public void snapshot() throws IOException {
+        commit();
+
+        long nextGeneration = generation + 1;
+        Path temporary = directory.resolve(SNAPSHOT + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(20);
+            header.putInt(SNAPSHOT_MAGIC).putLong(nextGeneration).putInt(nextTrainId).putInt(trains.size());
+            write(channel, header);
+
+            for (Map.Entry<Integer, Train> entry : trains.entrySet()) {
+                writeTrain(channel, entry.getKey(), entry.getValue());
+            }
+            write(channel, buffer);
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(SNAPSHOT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        journal.close();
+        Files.deleteIfExists(journalPath(generation));
+        openJournal(nextGeneration);
+        operationsSinceSnapshot = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        recorders.forEach((trainId, recorder) -> trains.get(trainId).removeListener(recorder));
+        recorders.clear();
+        if (journal.isOpen()) {
+            commit();
+            journal.close();
+        }
+    }
+
+    private Train train(int trainId) {
+        Train train = trains.get(trainId);
+        if (train == null) {
+            throw new IllegalArgumentException("Unknown train id " + trainId);
+        }
+        return train;
+    }
+
+    private Path journalPath(long generation) {
+        return directory.resolve("journal-" + generation + ".log");
+    }
+
+    private void openJournal(long generation) throws IOException {
+        this.generation = generation;
+        this.journal = FileChannel.open(journalPath(generation), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        this.journal.position(this.journal.size());
+    }
+
+    private void startRecord(byte operation) {
+        record.clear();
+        record.putInt(0);
+        record.put(operation);
+    }
+
+    /**
+     * Completes the record with its length and checksum and appends it to the buffer.
+     * Forces a group commit or takes a snapshot when they are due.
+     */
+    private void endRecord() throws IOException {
+        int payloadLength = record.position() - 4;
+        record.putInt(0, payloadLength);
+        crc.reset();
+        crc.update(record.array(), 4, payloadLength);
+        ensureRecordCapacity(4);
+        record.putInt((int) crc.getValue());
+        record.flip();
+
+        if (buffer.remaining() < record.remaining()) {
+            flush();
+        }
+        if (buffer.remaining() < record.remaining()) {
+            write(journal, record);
+        } else {
+            buffer.put(record);
+        }
+
+        if (++operationsSinceSnapshot >= snapshotInterval) {
+            snapshot();
+        } else if (++uncommittedOperations >= groupSize) {
+            commit();
+        }
+    }
+
+    private void flush() throws IOException {
+        write(journal, buffer);
+    }
+
+    /**
+     * Writes the content of the given buffer up to its position, and clears it.
+     */
+    private static void write(FileChannel channel, ByteBuffer source) throws IOException {
+        source.flip();
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+        source.clear();
+    }
+
+    private void ensureRecordCapacity(int bytes) {
+        if (record.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(record.capacity() * 2, record.position() + bytes));
+            record.flip();
+            larger.put(record);
+            record = larger;
+        }
+    }
+
+    private void putString(String value) {
+        byte[] bytes = value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+        ensureRecordCapacity(4 + (bytes == null ? 0 : bytes.length));
+        if (bytes == null) {
+            record.putInt(-1);
+        } else {
+            record.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer source) {
+        int length = source.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        source.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void putWagon(ByteBuffer target, Wagon wagon) {
+        target.putInt(wagon.getId());
+        if (wagon instanceof PassengerWagon) {
+            target.put((byte) WagonType.PASSENGER.ordinal()).putInt(((PassengerWagon) wagon).getNumberOfSeats()).putInt(0);
+        } else {
+            FreightWagon freightWagon = (FreightWagon) wagon;
+            target.put((byte) WagonType.FREIGHT.ordinal()).putInt(freightWagon.getMaxWeight()).putInt(freightWagon.getLoad());
+        }
+    }
+
+    private static Wagon getWagon(ByteBuffer source) {
+        int wagonId = source.getInt();
+        byte type = source.get();
+        int value = source.getInt();
+        int load = source.getInt();
+        if (type == WagonType.PASSENGER.ordinal()) {
+            return new PassengerWagon(wagonId, value);
+        }
+        FreightWagon freightWagon = new FreightWagon(wagonId, value);
+        freightWagon.setLoad(load);
+        return freightWagon;
+    }
+
+    /**
+     * Reads a wagon and gives the wagon of the train with the same id its seats, maximum weight and load
+     */
+    private static void changeWagon(Train train, ByteBuffer source) {
+        Wagon recorded = getWagon(source);
+        Wagon wagon = train.findWagonById(recorded.getId());
+        if (wagon instanceof PassengerWagon && recorded instanceof PassengerWagon) {
+            ((PassengerWagon) wagon).setNumberOfSeats(((PassengerWagon) recorded).getNumberOfSeats());
+        } else if (wagon instanceof FreightWagon && recorded instanceof FreightWagon) {
+            FreightWagon freightWagon = (FreightWagon) wagon;
+            freightWagon.setMaxWeight(((FreightWagon) recorded).getMaxWeight());
+            freightWagon.setLoad(((FreightWagon) recorded).getLoad());
+        }
+    }
+
+    /**
+     * Reads a sequence of count wagons and links them together
+     * @return  the first wagon of the sequence
+     */
+    private static Wagon getWagons(ByteBuffer source, int count) {
+        Wagon first = null;
+        Wagon last = null;
+        for (int i = 0; i < count; i++) {
+            Wagon wagon = getWagon(source);
+            if (first == null) {
+                first = wagon;
+            } else {
+                last.attachTail(wagon);
+            }
+            last = wagon;
+        }
+        return first;
+    }
+
+    private void writeTrain(FileChannel channel, int trainId, Train train) throws IOException {
+        byte[] origin = train.getOrigin() == null ? null : train.getOrigin().getBytes(StandardCharsets.UTF_8);
+        byte[] destination = train.getDestination() == null ? null : train.getDestination().getBytes(StandardCharsets.UTF_8);
+        int headerSize = 20 + 8 + (origin == null ? 0 : origin.length) + (destination == null ? 0 : destination.length);
+        if (buffer.remaining() < headerSize) {
+            write(channel, buffer);
+        }
+        if (buffer.remaining() < headerSize) {
+            throw new IOException("Route of train " + trainId + " is too long for a snapshot");
+        }
+
+        buffer.putInt(trainId).putInt(train.getEngine().getLocNumber()).putInt(train.getEngine().getMaxWagons());
+        putBytes(origin);
+        putBytes(destination);
+        buffer.putInt(train.getNumberOfWagons());
+        for (Wagon wagon : train.sharedWagons()) {
+            if (buffer.remaining() < WAGON_BYTES) {
+                write(channel, buffer);
+            }
+            putWagon(buffer, wagon);
+        }
+    }
+
+    private void putBytes(byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    /**
+     * Restores the trains from the snapshot (if any) and replays the journal that follows it.
+     */
+    private void recover() throws IOException {
+        long snapshotGeneration = 0;
+        Path snapshot = directory.resolve(SNAPSHOT);
+        if (Files.exists(snapshot)) {
+            snapshotGeneration = readSnapshot(snapshot);
+        }
+
+        Path journalPath = journalPath(snapshotGeneration);
+        long validLength = 0;
+        if (Files.exists(journalPath)) {
+            validLength = replay(journalPath);
+        }
+
+        openJournal(snapshotGeneration);
+        // drop a partially written record at the end of the journal
+        journal.truncate(validLength);
+        journal.position(validLength);
+    }
+
+    private long readSnapshot(Path snapshot) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            MappedByteBuffer source = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (source.getInt() != SNAPSHOT_MAGIC) {
+                throw new IOException(snapshot + " is not a snapshot of trains");
+            }
+            long snapshotGeneration = source.getLong();
+            nextTrainId = source.getInt();
+            int numberOfTrains = source.getInt();
+
+            for (int i = 0; i < numberOfTrains; i++) {
+                int trainId = source.getInt();
+                Locomotive engine = new Locomotive(source.getInt(), source.getInt());
+                Train train = new Train(engine, getString(source), getString(source));
+                int numberOfWagons = source.getInt();
+                if (numberOfWagons > 0) {
+                    train.setFirstWagon(getWagons(source, numberOfWagons));
+                }
+                trains.put(trainId, train);
+            }
+            return snapshotGeneration;
+        }
+    }
+
+    /**
+     * Applies all complete and intact records of the journal to the trains
+     * @return  the length of the journal up to the end of the last intact record
+     */
+    private long replay(Path journalPath) throws IOException {
+        try (FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.READ)) {
+            MappedByteBuffer source = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            while (source.remaining() >= 4) {
+                int start = source.position();
+                int payloadLength = source.getInt();
+                if (payloadLength <= 0 || source.remaining() < payloadLength + 4) {
+                    return start;
+                }
+
+                ByteBuffer payload = source.slice();
+                payload.limit(payloadLength);
+                crc.reset();
+                crc.update(payload.duplicate());
+                source.position(start + 4 + payloadLength);
+                if (source.getInt() != (int) crc.getValue()) {
+                    return start;
+                }
+                apply(payload);
+            }
+            return source.position();
+        }
+    }
+
+    private void apply(ByteBuffer payload) {
+        byte operation = payload.get();
+        switch (operation) {
+            case CREATE_TRAIN: {
+                int trainId = payload.getInt();
+                Locomotive engine = new Locomotive(payload.getInt(), payload.getInt());
+                trains.put(trainId, new Train(engine, getString(payload), getString(payload)));
+                nextTrainId = Math.max(nextTrainId, trainId + 1);
+                break;
+            }
+            case ATTACH_TO_REAR: {
+                Train train = trains.get(payload.getInt());
+                train.attachToRear(getWagons(payload, payload.getInt()));
+                break;
+            }
+            case MOVE_ONE_WAGON:
+                trains.get(payload.getInt()).moveOneWagon(payload.getInt(), trains.get(payload.getInt()));
+                break;
+            case SPLIT_AT_POSITION:
+                trains.get(payload.getInt()).splitAtPosition(payload.getInt(), trains.get(payload.getInt()));
+                break;
+            case REVERSE:
+                trains.get(payload.getInt()).reverse();
+                break;
+            case CHANGE_WAGON:
+                changeWagon(trains.get(payload.getInt()), payload);
+                break;
+            case RENAME_WAGON: {
+                Wagon wagon = trains.get(payload.getInt()).findWagonById(payload.getInt());
+                int wagonId = payload.getInt();
+                if (wagon != null) {
+                    wagon.setId(wagonId);
+                }
+                break;
+            }
+            default:
+                throw new IllegalStateException("Unknown operation " + operation + " in journal");
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package models;
+
+/**
+ * Receives a notification after every change of the wagons of a train,
+ * or of the properties of those wagons.
+ */
+public interface TrainListener {
+
+    /**
+     * @param train the train that has changed
+     */
+    void trainChanged(Train train);
+
+    /**
+     * Called instead of trainChanged when only a property of one wagon has changed,
+     * such as its number of seats or its maximum weight.
+     * @param train the train of the wagon
+     * @param wagon the wagon that has changed
+     */
+    default void wagonChanged(Train train, Wagon wagon) {
+        trainChanged(train);
+    }
+
+    /**
+     * Called instead of wagonChanged when the id of one wagon has changed.
+     * @param train     the train of the wagon
+     * @param wagon     the wagon that has changed
+     * @param formerId  the id of the wagon before the change
+     */
+    default void wagonRenamed(Train train, Wagon wagon, int formerId) {
+        wagonChanged(train, wagon);
+    }
+
+    /**
+     * Called instead of trainChanged when a sequence of wagons has been inserted into the train.
+     * @param train     the train that has changed
+     * @param position  the position of the first inserted wagon, starting at 1
+     * @param wagonIds  the ids of the inserted wagons in the order of the train, not to be changed
+     */
+    default void wagonsInserted(Train train, int position, int[] wagonIds) {
+        trainChanged(train);
+    }
+
+    /**
+     * Called instead of trainChanged when a sequence of wagons has been removed from the train.
+     * @param train     the train that has changed
+     * @param position  the position that the first removed wagon had, starting at 1
+     * @param count     the number of removed wagons
+     */
+    default void wagonsRemoved(Train train, int position, int count) {
+        trainChanged(train);
+    }
+
+    /**
+     * Called instead of trainChanged when the order of the wagons has been reversed.
+     * @param train the train that has been reversed
+     */
+    default void trainReversed(Train train) {
+        trainChanged(train);
+    }
+}
@@ -1,10 +1,15 @@
 package models;
 
+/**
+ * A wagon, linked to the wagons in front of and behind it.
+ * The links are only changed within this package: a train keeps its number of wagons, totals and type
+ * up to date as it links its wagons, so the wagons of a train are moved through the methods of the train.
+ */
 public abstract class Wagon {
     protected int id;
     private Wagon nextWagon;
     private Wagon previousWagon;
-
+    private Train train;
 
     // representation invariant propositions:
     // tail-connection-invariant:   wagon.nextWagon == null or wagon == wagon.nextWagon.previousWagon
@@ -18,6 +23,48 @@ public abstract class Wagon {
         return id;
     }
 
+    /**
+     * @return  the type of load this wagon is built for
+     */
+    public abstract WagonType getType();
+
+    /**
+     * @return  a new wagon with the same id and properties as this wagon,
+     *          not attached to any train or other wagon
+     */
+    abstract Wagon copy();
+
+    /**
+     * @return  the train this wagon is currently part of,
+     *          or null if it is not attached to any train
+     */
+    public Train getTrain() {
+        return train;
+    }
+
+    void setTrain(Train train) {
+        this.train = train;
+    }
+
+    /**
+     * Notifies the train of this wagon (if any) that a property of this wagon is about to change,
+     * so trains that share the wagons with it can keep the current value.
+     */
+    protected void changing() {
+        if (train != null) {
+            train.wagonChanging();
+        }
+    }
+
+    /**
+     * Notifies the train of this wagon (if any) that a property of this wagon has changed.
+     */
+    protected void changed() {
+        if (train != null) {
+            train.wagonChanged(this);
+        }
+    }
+
     public Wagon getNextWagon() {
         return nextWagon;
     }
@@ -77,7 +124,7 @@ public abstract class Wagon {
      * @throws IllegalStateException if this wagon already has a wagon appended to it.
      * @throws IllegalStateException if tail is already attached to a wagon in front of it.
      */
-    public void attachTail(Wagon tail) {
+    void attachTail(Wagon tail) {
         if (hasNextWagon()) {
             throw new IllegalStateException("Wagon " + this + " already has wagon " + getNextWagon() + " appended to it so " + tail + " cannot be appended.");
         }
@@ -94,7 +141,7 @@ public abstract class Wagon {
      * @return the first wagon of the tail that has been detached
      *          or <code>null</code> if it had no wagons attached to its tail.
      */
-    public Wagon detachTail() {
+    Wagon detachTail() {
         if (!this.hasNextWagon()) {
             return null;
         }
@@ -112,7 +159,7 @@ public abstract class Wagon {
      * @return  the former previousWagon that has been detached from,
      *          or null if it had no previousWagon.
      */
-    public Wagon detachFront() {
+    Wagon detachFront() {
         if (!this.hasPreviousWagon()) {
             return null;
         }
@@ -131,7 +178,7 @@ public abstract class Wagon {
      * and the <code>front</code> wagon from its current tail.
      * @param front the wagon to which this wagon must be attached to.
      */
-    public void reAttachTo(Wagon front) {
+    void reAttachTo(Wagon front) {
         if (hasPreviousWagon()) {
             getPreviousWagon().setNextWagon(null);
         }
@@ -146,7 +193,7 @@ public abstract class Wagon {
      * Removes this wagon from the sequence that it is part of,
      * and reconnects its tail to the wagon in front of it, if it exists.
      */
-    public void removeFromSequence() {
+    void removeFromSequence() {
         Wagon front = this.previousWagon;
         Wagon tail = this.nextWagon;
 
@@ -167,37 +214,41 @@ public abstract class Wagon {
      * No action if this Wagon has no succeeding next wagon attached.
      * @return the new start Wagon of the reversed sequence (with is the former last Wagon of the original sequence)
      */
-    public Wagon reverseSequence() {
-        Wagon previousWagon = this.getPreviousWagon();
-        Wagon nextWagon = this.nextWagon;
-
-        if (nextWagon == null) {
-            setNextWagon(null);
-            return this;
+    Wagon reverseSequence() {
+        Wagon front = this.previousWagon;
+        Wagon reversed = null;
+        Wagon current = this;
+        while (current != null) {
+            Wagon next = current.nextWagon;
+            current.setNextWagon(reversed);
+            current.setPreviousWagon(next);
+            reversed = current;
+            current = next;
         }
-        Wagon frontWagon = nextWagon.reverseSequence();
-        setNextWagon(null);
-        setPreviousWagon(null);
-        reAttachTo(nextWagon);
 
-        if (previousWagon != null) {
-            previousWagon.setNextWagon(frontWagon);
+        // reversed is the former last wagon, now heading the sequence
+        reversed.setPreviousWagon(front);
+        if (front != null) {
+            front.setNextWagon(reversed);
         }
-
-        frontWagon.setPreviousWagon(previousWagon);
-
-        return frontWagon;
+        return reversed;
     }
 
     public void setId(int id) {
+        changing();
+        int formerId = this.id;
         this.id = id;
+        if (train != null) {
+            // the train renders the ids of its wagons
+            train.wagonRenamed(this, formerId);
+        }
     }
 
-    public void setNextWagon(Wagon nextWagon) {
+    void setNextWagon(Wagon nextWagon) {
         this.nextWagon = nextWagon;
     }
 
-    public void setPreviousWagon(Wagon previousWagon) {
+    void setPreviousWagon(Wagon previousWagon) {
         this.previousWagon = previousWagon;
     }
 
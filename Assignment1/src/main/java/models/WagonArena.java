@@ -0,0 +1,157 @@
+package models;
+
+import java.util.Arrays;
+
+/**
+ * Compact storage for the wagons of read-mostly fleet snapshots.
+ * Instead of one object per wagon, every wagon is a slot in a few parallel arrays:
+ *      ids[slot]           the immutable wagon id
+ *      attributes[slot]    type, number of seats and maximum weight packed in one long
+ *      loads[slot]         the load of a freight wagon
+ *      next[slot]          the slot of the next wagon, or NONE
+ *      previous[slot]      the slot of the previous wagon, or NONE
+ * That is 24 bytes per wagon without any object header,
+ * where a PassengerWagon or FreightWagon object takes about 56 bytes on a 64-bit JVM with compressed oops.
+ * Trains are added with {@link #freeze(Train)}, which returns a read-only view on the arena.
+ */
+public class WagonArena {
+    public static final int NONE = -1;
+
+    // attribute word layout: | type + 1 (8 bits) | number of seats (24 bits) | maximum weight (32 bits) |
+    private static final int TYPE_SHIFT = 56;
+    private static final int SEATS_SHIFT = 32;
+    private static final long SEATS_MASK = 0xFFFFFFL;
+    private static final long WEIGHT_MASK = 0xFFFFFFFFL;
+
+    private int[] ids;
+    private long[] attributes;
+    private int[] loads;
+    private int[] next;
+    private int[] previous;
+    private int size;
+
+    public WagonArena() {
+        this(1024);
+    }
+
+    public WagonArena(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 16);
+        ids = new int[capacity];
+        attributes = new long[capacity];
+        loads = new int[capacity];
+        next = new int[capacity];
+        previous = new int[capacity];
+    }
+
+    /**
+     * Packs the attributes of a wagon into a single attribute word
+     * @param type
+     * @param seats     the number of seats, between 0 and 2^24 - 1
+     * @param maxWeight the maximum weight, between 0 and 2^32 - 1
+     * @return  the attribute word
+     */
+    public static long pack(WagonType type, int seats, long maxWeight) {
+        if (seats < 0 || seats > SEATS_MASK || maxWeight < 0 || maxWeight > WEIGHT_MASK) {
+            throw new IllegalArgumentException("Seats " + seats + " or maximum weight " + maxWeight + " out of range");
+        }
+        return ((long) (type.ordinal() + 1) << TYPE_SHIFT) | ((long) seats << SEATS_SHIFT) | maxWeight;
+    }
+
+    public static long pack(Wagon wagon) {
+        if (wagon instanceof PassengerWagon) {
+            return pack(WagonType.PASSENGER, ((PassengerWagon) wagon).getNumberOfSeats(), 0);
+        }
+        return pack(WagonType.FREIGHT, 0, ((FreightWagon) wagon).getMaxWeight());
+    }
+
+    public static WagonType typeOf(long attributes) {
+        return WagonType.values()[(int) (attributes >>> TYPE_SHIFT) - 1];
+    }
+
+    public static int seatsOf(long attributes) {
+        return (int) ((attributes >>> SEATS_SHIFT) & SEATS_MASK);
+    }
+
+    public static long maxWeightOf(long attributes) {
+        return attributes & WEIGHT_MASK;
+    }
+
+    /**
+     * Copies the wagons of the given train into this arena
+     * @param train
+     * @return  a read-only view of the train as it is now
+     * @throws IllegalArgumentException if a wagon cannot be packed, see {@link #pack(WagonType, int, long)},
+     *          in which case this arena is left unchanged
+     */
+    public FrozenTrain freeze(Train train) {
+        int numberOfWagons = train.getNumberOfWagons();
+        ensureCapacity(size + numberOfWagons);
+
+        // the slots are only taken once every wagon has been packed
+        int slot = size;
+        for (Wagon wagon : train.sharedWagons()) {
+            ids[slot] = wagon.getId();
+            attributes[slot] = pack(wagon);
+            loads[slot] = wagon instanceof FreightWagon ? ((FreightWagon) wagon).getLoad() : 0;
+            next[slot] = slot + 1;
+            previous[slot] = slot - 1;
+            slot++;
+        }
+
+        int head = NONE;
+        int tail = NONE;
+        if (numberOfWagons > 0) {
+            head = size;
+            tail = slot - 1;
+            previous[head] = NONE;
+            next[tail] = NONE;
+        }
+        size = slot;
+        return new FrozenTrain(this, train, head, tail);
+    }
+
+    private void ensureCapacity(int minimumCapacity) {
+        if (minimumCapacity > ids.length) {
+            int capacity = Math.max(minimumCapacity, ids.length + (ids.length >> 1));
+            ids = Arrays.copyOf(ids, capacity);
+            attributes = Arrays.copyOf(attributes, capacity);
+            loads = Arrays.copyOf(loads, capacity);
+            next = Arrays.copyOf(next, capacity);
+            previous = Arrays.copyOf(previous, capacity);
+        }
+    }
+
+    /**
+     * @return  the number of wagons stored in this arena
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return  the number of bytes taken by the wagon arrays of this arena
+     */
+    public long footprint() {
+        return 24L * ids.length;
+    }
+
+    int idAt(int slot) {
+        return ids[slot];
+    }
+
+    long attributesAt(int slot) {
+        return attributes[slot];
+    }
+
+    int loadAt(int slot) {
+        return loads[slot];
+    }
+
+    int nextOf(int slot) {
+        return next[slot];
+    }
+
+    int previousOf(int slot) {
+        return previous[slot];
+    }
+}
@@ -0,0 +1,116 @@
+package models;
+
+import java.util.Collection;
+
+/**
+ * The attributes of the wagons of a train or a fleet, copied into primitive arrays
+ * (one element per wagon, in the order of the trains) for fast aggregation, see {@link AggregationKernels}.
+ * Seats are 0 for a freight wagon, and maximum weights are 0 for a passenger wagon.
+ */
+public class WagonAttributes {
+    private final byte[] types;
+    private final int[] seats;
+    private final int[] maxWeights;
+
+    private WagonAttributes(int numberOfWagons) {
+        types = new byte[numberOfWagons];
+        seats = new int[numberOfWagons];
+        maxWeights = new int[numberOfWagons];
+    }
+
+    public static WagonAttributes of(Train train) {
+        WagonAttributes attributes = new WagonAttributes(train.getNumberOfWagons());
+        attributes.fill(train, 0);
+        return attributes;
+    }
+
+    public static WagonAttributes of(Collection<Train> fleet) {
+        int numberOfWagons = 0;
+        for (Train train : fleet) {
+            numberOfWagons += train.getNumberOfWagons();
+        }
+
+        WagonAttributes attributes = new WagonAttributes(numberOfWagons);
+        int index = 0;
+        for (Train train : fleet) {
+            index = attributes.fill(train, index);
+        }
+        return attributes;
+    }
+
+    private int fill(Train train, int index) {
+        for (Wagon wagon : train.sharedWagons()) {
+            types[index] = (byte) wagon.getType().ordinal();
+            if (wagon instanceof PassengerWagon) {
+                seats[index] = ((PassengerWagon) wagon).getNumberOfSeats();
+            } else if (wagon instanceof FreightWagon) {
+                maxWeights[index] = ((FreightWagon) wagon).getMaxWeight();
+            }
+            index++;
+        }
+        return index;
+    }
+
+    public int size() {
+        return types.length;
+    }
+
+    /**
+     * @return  the WagonType ordinal of every wagon
+     */
+    public byte[] getTypes() {
+        return types;
+    }
+
+    public int[] getSeats() {
+        return seats;
+    }
+
+    public int[] getMaxWeights() {
+        return maxWeights;
+    }
+
+    public long getTotalNumberOfSeats() {
+        return AggregationKernels.sum(seats, types, WagonType.PASSENGER);
+    }
+
+    public long getTotalMaxWeight() {
+        return AggregationKernels.sum(maxWeights, types, WagonType.FREIGHT);
+    }
+
+    /**
+     * @return  the number of seats of the smallest passenger wagon, or 0 if there are none
+     */
+    public int getMinNumberOfSeats() {
+        return countOf(WagonType.PASSENGER) == 0 ? 0 : AggregationKernels.min(seats, types, WagonType.PASSENGER);
+    }
+
+    /**
+     * @return  the number of seats of the largest passenger wagon, or 0 if there are none
+     */
+    public int getMaxNumberOfSeats() {
+        return countOf(WagonType.PASSENGER) == 0 ? 0 : AggregationKernels.max(seats, types, WagonType.PASSENGER);
+    }
+
+    /**
+     * @return  the maximum weight of the heaviest freight wagon, or 0 if there are none
+     */
+    public int getLargestMaxWeight() {
+        return countOf(WagonType.FREIGHT) == 0 ? 0 : AggregationKernels.max(maxWeights, types, WagonType.FREIGHT);
+    }
+
+    /**
+     * @return  the number of freight wagons with a maximum weight over the given weight
+     */
+    public int countFreightWagonsOver(int weight) {
+        return weight == Integer.MAX_VALUE ? 0
+                : AggregationKernels.countBetween(maxWeights, types, WagonType.FREIGHT, weight + 1, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return  the number of wagons of the given type
+     */
+    public int countOf(WagonType type) {
+        return AggregationKernels.countBetween(seats, types, type, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,69 @@
+package models;
+
+/**
+ * A Bloom filter of wagon ids: a compact set that may report an id it does not contain
+ * (about 2% of the ids when it holds its capacity), but never misses an id it does contain.
+ * Ids cannot be removed, so the filter is rebuilt when it holds too many removed ids.
+ */
+class WagonIdFilter {
+    private static final int BITS_PER_ID = 10;
+    private static final int PROBES = 3;
+
+    private final long[] words;
+    private final int mask;
+    private final int capacity;
+    private int size;
+
+    WagonIdFilter(int capacity) {
+        this.capacity = Math.max(capacity, 16);
+        int bits = Integer.highestOneBit(this.capacity * BITS_PER_ID - 1) << 1;
+        this.words = new long[bits >>> 6];
+        this.mask = bits - 1;
+    }
+
+    /**
+     * @return  the number of ids this filter was sized for
+     */
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return  the number of ids added to this filter
+     */
+    int size() {
+        return size;
+    }
+
+    void add(int wagonId) {
+        long hash = hash(wagonId);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < PROBES; i++) {
+            int bit = (h1 + i * h2) & mask;
+            words[bit >>> 6] |= 1L << bit;
+        }
+        size++;
+    }
+
+    /**
+     * @return  false if the id has certainly not been added, true if it probably has
+     */
+    boolean mightContain(int wagonId) {
+        long hash = hash(wagonId);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < PROBES; i++) {
+            int bit = (h1 + i * h2) & mask;
+            if ((words[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long hash(int wagonId) {
+        long h = wagonId * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+}
@@ -0,0 +1,218 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * A query over the wagons of a train, see {@link Train#query()}.
+ * The filters are combined into a single pass over the wagons, in the order of the train,
+ * which stops as soon as the result is known (after the first match, or after the limit).
+ * A query for a single id uses {@link Train#findWagonById(int)} instead of a pass over the wagons.
+ * A query can be run again, and then reflects the current wagons of the train.
+ */
+public class WagonQuery {
+    private final Train train;
+    private IntPredicate idFilter;
+    private IntPredicate seatsFilter;
+    private IntPredicate maxWeightFilter;
+    private Predicate<Wagon> wagonFilter;
+    private boolean lookupById;
+    private int lookupId;
+    private int limit = Integer.MAX_VALUE;
+
+    /**
+     * Receives the matching wagons of a pass
+     */
+    private interface Sink {
+        /**
+         * @return  whether the pass should continue
+         */
+        boolean accept(Wagon wagon);
+    }
+
+    WagonQuery(Train train) {
+        this.train = train;
+    }
+
+    /**
+     * Only matches the wagons with an id accepted by the filter
+     * @param filter
+     * @return  this query
+     */
+    public WagonQuery whereId(IntPredicate filter) {
+        idFilter = idFilter == null ? filter : idFilter.and(filter);
+        return this;
+    }
+
+    /**
+     * Only matches the wagon with the given id, found without a pass over the wagons
+     * @param wagonId
+     * @return  this query
+     */
+    public WagonQuery whereIdEquals(int wagonId) {
+        lookupById = true;
+        lookupId = wagonId;
+        return whereId(id -> id == wagonId);
+    }
+
+    /**
+     * Only matches the passenger wagons with a number of seats accepted by the filter
+     * @param filter
+     * @return  this query
+     */
+    public WagonQuery whereSeats(IntPredicate filter) {
+        seatsFilter = seatsFilter == null ? filter : seatsFilter.and(filter);
+        return this;
+    }
+
+    /**
+     * Only matches the freight wagons with a maximum weight accepted by the filter
+     * @param filter
+     * @return  this query
+     */
+    public WagonQuery whereMaxWeight(IntPredicate filter) {
+        maxWeightFilter = maxWeightFilter == null ? filter : maxWeightFilter.and(filter);
+        return this;
+    }
+
+    /**
+     * Only matches the wagons accepted by the filter
+     * @param filter
+     * @return  this query
+     */
+    public WagonQuery where(Predicate<? super Wagon> filter) {
+        wagonFilter = wagonFilter == null ? filter::test : wagonFilter.and(filter);
+        return this;
+    }
+
+    /**
+     * Stops the query after the given number of matching wagons
+     * @param maxWagons
+     * @return  this query
+     */
+    public WagonQuery limit(int maxWagons) {
+        if (maxWagons < 0) {
+            throw new IllegalArgumentException("The limit of a query cannot be negative: " + maxWagons);
+        }
+        limit = Math.min(limit, maxWagons);
+        return this;
+    }
+
+    /**
+     * @return  the number of matching wagons
+     */
+    public int count() {
+        return run(wagon -> true);
+    }
+
+    /**
+     * @return  whether at least one wagon matches
+     */
+    public boolean anyMatch() {
+        return run(wagon -> false) > 0;
+    }
+
+    /**
+     * @return  the first matching wagon, or null if no wagon matches
+     */
+    public Wagon findFirst() {
+        Wagon[] found = new Wagon[1];
+        run(wagon -> {
+            found[0] = wagon;
+            return false;
+        });
+        return found[0];
+    }
+
+    /**
+     * @return  the ids of the matching wagons
+     */
+    public int[] ids() {
+        return project(Wagon::getId);
+    }
+
+    /**
+     * @param projection
+     * @return  the projection of every matching wagon
+     */
+    public int[] project(ToIntFunction<? super Wagon> projection) {
+        int[] values = new int[Math.min(limit, train.getNumberOfWagons())];
+        int found = run(new Sink() {
+            private int index;
+
+            @Override
+            public boolean accept(Wagon wagon) {
+                values[index++] = projection.applyAsInt(wagon);
+                return true;
+            }
+        });
+        return found == values.length ? values : Arrays.copyOf(values, found);
+    }
+
+    /**
+     * @return  the matching wagons
+     */
+    public List<Wagon> toList() {
+        List<Wagon> wagons = new ArrayList<>();
+        run(wagons::add);
+        return wagons;
+    }
+
+    public void forEach(Consumer<? super Wagon> action) {
+        run(wagon -> {
+            action.accept(wagon);
+            return true;
+        });
+    }
+
+    /**
+     * Passes the matching wagons to the sink, until the sink or the limit stops the pass
+     * @param sink
+     * @return  the number of matching wagons passed to the sink
+     */
+    private int run(Sink sink) {
+        if (limit == 0) {
+            return 0;
+        }
+
+        if (lookupById) {
+            Wagon wagon = train.findWagonById(lookupId);
+            if (wagon == null || !matches(wagon)) {
+                return 0;
+            }
+            sink.accept(wagon);
+            return 1;
+        }
+
+        int found = 0;
+        for (Wagon wagon : train) {
+            if (matches(wagon)) {
+                found++;
+                if (!sink.accept(wagon) || found == limit) {
+                    break;
+                }
+            }
+        }
+        return found;
+    }
+
+    private boolean matches(Wagon wagon) {
+        if (idFilter != null && !idFilter.test(wagon.getId())) {
+            return false;
+        }
+        if (seatsFilter != null && !(wagon instanceof PassengerWagon
+                && seatsFilter.test(((PassengerWagon) wagon).getNumberOfSeats()))) {
+            return false;
+        }
+        if (maxWeightFilter != null && !(wagon instanceof FreightWagon
+                && maxWeightFilter.test(((FreightWagon) wagon).getMaxWeight()))) {
+            return false;
+        }
+        return wagonFilter == null || wagonFilter.test(wagon);
+    }
+}
@@ -0,0 +1,10 @@
+package models;
+
+/**
+ * The kind of load a wagon is built for.
+ * A train only ever pulls wagons of a single type.
+ */
+public enum WagonType {
+    PASSENGER,
+    FREIGHT
+}
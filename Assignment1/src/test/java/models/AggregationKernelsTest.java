@@ -0,0 +1,84 @@
+package models;
+
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class AggregationKernelsTest {
+    Train passengerTrain, freightTrain;
+
+    @BeforeEach
+    private void setup() {
+        passengerTrain = new Train(new Locomotive(24531, 7), "Amsterdam", "Paris");
+        passengerTrain.attachToRear(new PassengerWagon(8001, 32));
+        passengerTrain.attachToRear(new PassengerWagon(8002, 18));
+        passengerTrain.attachToRear(new PassengerWagon(8003, 44));
+        passengerTrain.attachToRear(new PassengerWagon(8004, 40));
+        passengerTrain.attachToRear(new PassengerWagon(8005, 44));
+
+        freightTrain = new Train(new Locomotive(63427, 50), "Amsterdam", "Berlin");
+        freightTrain.attachToRear(new FreightWagon(9001, 50000));
+        freightTrain.attachToRear(new FreightWagon(9002, 60000));
+        freightTrain.attachToRear(new FreightWagon(9003, 56000));
+    }
+
+    @Test
+    public void T01_TotalsMatchTheTrains() {
+        WagonAttributes attributes = WagonAttributes.of(List.of(passengerTrain, freightTrain));
+        assertEquals(8, attributes.size());
+        assertEquals(passengerTrain.getTotalNumberOfSeats(), attributes.getTotalNumberOfSeats());
+        assertEquals(freightTrain.getTotalMaxWeight(), attributes.getTotalMaxWeight());
+        assertEquals(18, attributes.getMinNumberOfSeats());
+        assertEquals(44, attributes.getMaxNumberOfSeats());
+        assertEquals(60000, attributes.getLargestMaxWeight());
+        assertEquals(2, attributes.countFreightWagonsOver(55000));
+        assertEquals(5, attributes.countOf(WagonType.PASSENGER));
+    }
+
+    @Test
+    public void T02_AggregatesOfATrainWithoutWagonsOfAType() {
+        WagonAttributes attributes = WagonAttributes.of(passengerTrain);
+        assertEquals(0, attributes.getTotalMaxWeight());
+        assertEquals(0, attributes.getLargestMaxWeight());
+        assertEquals(0, attributes.countOf(WagonType.FREIGHT));
+        assertEquals(Integer.MIN_VALUE, AggregationKernels.max(attributes.getMaxWeights(), attributes.getTypes(), WagonType.FREIGHT));
+        assertEquals(0, AggregationKernels.countBetween(attributes.getSeats(), attributes.getTypes(), WagonType.PASSENGER, 50, 40));
+    }
+
+    @Test
+    public void T03_KernelsMatchSimpleLoopsForAllLengths() {
+        Random random = new Random(7);
+        for (int length = 0; length < 40; length++) {
+            int[] values = new int[length];
+            byte[] types = new byte[length];
+            for (int i = 0; i < length; i++) {
+                values[i] = random.nextInt(200) - 100;
+                types[i] = (byte) random.nextInt(2);
+            }
+
+            long sum = 0, sumAll = 0;
+            int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE, count = 0;
+            for (int i = 0; i < length; i++) {
+                sumAll += values[i];
+                if (types[i] == WagonType.FREIGHT.ordinal()) {
+                    sum += values[i];
+                    min = Math.min(min, values[i]);
+                    max = Math.max(max, values[i]);
+                    if (values[i] >= -20 && values[i] <= 30) {
+                        count++;
+                    }
+                }
+            }
+
+            assertEquals(sumAll, AggregationKernels.sum(values));
+            assertEquals(sum, AggregationKernels.sum(values, types, WagonType.FREIGHT));
+            assertEquals(min, AggregationKernels.min(values, types, WagonType.FREIGHT));
+            assertEquals(max, AggregationKernels.max(values, types, WagonType.FREIGHT));
+            assertEquals(count, AggregationKernels.countBetween(values, types, WagonType.FREIGHT, -20, 30));
+        }
+    }
+}
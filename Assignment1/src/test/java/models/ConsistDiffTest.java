@@ -0,0 +1,140 @@
+package models;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class ConsistDiffTest {
+    Train passengerTrain;
+
+    /**
+     * Applies the edits to a list of wagon ids, and counts them.
+     */
+    private static class Display implements ConsistDiff.Listener {
+        private final List<Integer> ids = new ArrayList<>();
+        private int reversals, removals, inserts, moves;
+
+        private Display(int[] ids) {
+            for (int id : ids) {
+                this.ids.add(id);
+            }
+        }
+
+        @Override
+        public void reversed() {
+            Collections.reverse(ids);
+            reversals++;
+        }
+
+        @Override
+        public void removed(int wagonId) {
+            assertTrue(ids.remove(Integer.valueOf(wagonId)));
+            removals++;
+        }
+
+        @Override
+        public void inserted(int wagonId, Integer afterWagonId) {
+            assertFalse(ids.contains(wagonId));
+            ids.add(afterWagonId == null ? 0 : ids.indexOf(afterWagonId) + 1, wagonId);
+            inserts++;
+        }
+
+        @Override
+        public void moved(int wagonId, Integer afterWagonId) {
+            assertTrue(ids.remove(Integer.valueOf(wagonId)));
+            ids.add(afterWagonId == null ? 0 : ids.indexOf(afterWagonId) + 1, wagonId);
+            moves++;
+        }
+
+        private int[] toArray() {
+            return ids.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    @BeforeEach
+    private void setup() {
+        passengerTrain = new Train(new Locomotive(24531, 7), "Amsterdam", "Paris");
+        passengerTrain.attachToRear(new PassengerWagon(8001, 32));
+        passengerTrain.attachToRear(new PassengerWagon(8002, 32));
+        passengerTrain.attachToRear(new PassengerWagon(8003, 18));
+        passengerTrain.attachToRear(new PassengerWagon(8004, 44));
+        passengerTrain.attachToRear(new PassengerWagon(8005, 44));
+    }
+
+    private static Display diff(int[] from, int[] to) {
+        Display display = new Display(from);
+        ConsistDiff.diff(from, to, display);
+        assertArrayEquals(to, display.toArray());
+        return display;
+    }
+
+    @Test
+    public void T01_EqualConsistsHaveNoEdits() {
+        Display display = diff(new int[] {1, 2, 3}, new int[] {1, 2, 3});
+        assertEquals(0, display.reversals + display.removals + display.inserts + display.moves);
+    }
+
+    @Test
+    public void T02_InsertsRemovalsAndMoves() {
+        Display display = diff(new int[] {1, 2, 3, 4, 5, 6}, new int[] {7, 1, 3, 4, 2, 6, 8});
+        assertEquals(0, display.reversals);
+        assertEquals(1, display.removals);
+        assertEquals(2, display.inserts);
+        assertEquals(1, display.moves);
+    }
+
+    @Test
+    public void T03_AReversalIsDetected() {
+        Display display = diff(new int[] {1, 2, 3, 4, 5, 6}, new int[] {6, 5, 3, 4, 2, 1});
+        assertEquals(1, display.reversals);
+        assertEquals(1, display.moves);
+    }
+
+    @Test
+    public void T04_DiffOfTrainsAndSnapshots() {
+        WagonArena arena = new WagonArena();
+        FrozenTrain before = arena.freeze(passengerTrain);
+        Display display = new Display(new int[] {8001, 8002, 8003, 8004, 8005});
+
+        passengerTrain.reverse();
+        passengerTrain.moveOneWagon(8003, passengerTrain);
+        ConsistDiff.diff(before, arena.freeze(passengerTrain), display);
+        assertArrayEquals(new int[] {8005, 8004, 8002, 8001, 8003}, display.toArray());
+        assertEquals(1, display.reversals);
+        assertEquals(1, display.moves);
+
+        Train other = new Train(new Locomotive(1, 7), "Amsterdam", "Paris");
+        other.attachToRear(new PassengerWagon(8004, 44));
+        ConsistDiff.diff(passengerTrain, other, display);
+        assertArrayEquals(new int[] {8004}, display.toArray());
+    }
+
+    @Test
+    public void T05_DuplicateIdsAreRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> ConsistDiff.diff(new int[] {1, 2, 1}, new int[] {1}, new Display(new int[0])));
+    }
+
+    @Test
+    public void T06_LargeShuffledConsists() {
+        Random random = new Random(42);
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 0; id < 100000; id++) {
+            ids.add(id);
+        }
+        int[] from = ids.stream().mapToInt(Integer::intValue).toArray();
+        for (int i = 0; i < 50; i++) {
+            Collections.swap(ids, random.nextInt(ids.size()), random.nextInt(ids.size()));
+        }
+
+        Display display = diff(from, ids.stream().mapToInt(Integer::intValue).toArray());
+        assertEquals(0, display.reversals + display.removals + display.inserts);
+        assertTrue(display.moves <= 100);
+    }
+}
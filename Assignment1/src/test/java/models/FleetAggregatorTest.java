@@ -0,0 +1,70 @@
+package models;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class FleetAggregatorTest {
+    FleetAggregator aggregator;
+    List<Train> fleet;
+    Train parisTrain, berlinTrain;
+
+    @BeforeEach
+    private void setup() {
+        aggregator = new FleetAggregator();
+        fleet = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Train train = new Train(new Locomotive(i % 10, 10), "Amsterdam", i % 2 == 0 ? "Paris" : "Berlin");
+            if (i % 2 == 0) {
+                train.attachToRear(new PassengerWagon(i * 10, 30));
+                train.attachToRear(new PassengerWagon(i * 10 + 1, 20));
+            } else {
+                train.attachToRear(new FreightWagon(i * 10, 40000));
+            }
+            fleet.add(train);
+        }
+        parisTrain = fleet.get(0);
+        berlinTrain = fleet.get(1);
+    }
+
+    @Test
+    public void T01_TotalsPerRoute() {
+        Map<Route, FleetAggregator.Totals> totals = aggregator.totalsPerRoute(fleet);
+        assertEquals(2, totals.size());
+        FleetAggregator.Totals paris = totals.get(new Route("Amsterdam", "Paris"));
+        assertEquals(500, paris.getNumberOfTrains());
+        assertEquals(1000, paris.getNumberOfWagons());
+        assertEquals(25000, paris.getTotalNumberOfSeats());
+        assertEquals(0, paris.getTotalMaxWeight());
+        assertEquals(20000000, totals.get(new Route("Amsterdam", "Berlin")).getTotalMaxWeight());
+    }
+
+    @Test
+    public void T02_TotalsPerLocomotiveAndWagonType() {
+        Map<Integer, FleetAggregator.Totals> perLocomotive = aggregator.totalsPerLocomotive(fleet);
+        assertEquals(10, perLocomotive.size());
+        assertEquals(100, perLocomotive.get(3).getNumberOfTrains());
+
+        Map<WagonType, FleetAggregator.Totals> perType = aggregator.totalsPerWagonType(fleet);
+        assertEquals(25000, perType.get(WagonType.PASSENGER).getTotalNumberOfSeats());
+        assertEquals(500, perType.get(WagonType.FREIGHT).getNumberOfWagons());
+    }
+
+    @Test
+    public void T03_TotalsFollowChangesOfTheTrain() {
+        assertEquals(50, aggregator.totalsOf(parisTrain).getTotalNumberOfSeats());
+
+        ((PassengerWagon) parisTrain.getFirstWagon()).setNumberOfSeats(40);
+        assertEquals(60, aggregator.totalsOf(parisTrain).getTotalNumberOfSeats());
+
+        assertTrue(parisTrain.splitAtPosition(2, fleet.get(2)));
+        assertEquals(40, aggregator.totalsOf(parisTrain).getTotalNumberOfSeats());
+        assertEquals(70, aggregator.totalsOf(fleet.get(2)).getTotalNumberOfSeats());
+        assertEquals(25010, aggregator.totalsPerRoute(fleet).get(new Route("Amsterdam", "Paris")).getTotalNumberOfSeats());
+    }
+}
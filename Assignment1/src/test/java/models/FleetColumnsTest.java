@@ -0,0 +1,86 @@
+package models;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class FleetColumnsTest {
+    @TempDir
+    Path directory;
+
+    Path file;
+    Map<Integer, Train> fleet;
+
+    @BeforeEach
+    private void setup() throws IOException {
+        Train passengerTrain = new Train(new Locomotive(24531, 7), "Amsterdam", "Paris");
+        passengerTrain.attachToRear(new PassengerWagon(8001, 32));
+        passengerTrain.attachToRear(new PassengerWagon(8002, 32));
+        passengerTrain.attachToRear(new PassengerWagon(8003, 18));
+        passengerTrain.reverse();
+        Train freightTrain = new Train(new Locomotive(63427, 50), "Amsterdam", "Berlin");
+        freightTrain.attachToRear(new FreightWagon(9001, 50000));
+        freightTrain.attachToRear(new FreightWagon(9002, 50000));
+
+        fleet = new LinkedHashMap<>();
+        fleet.put(5, passengerTrain);
+        fleet.put(7, new Train(new Locomotive(29123, 7), "Amsterdam", "London"));
+        fleet.put(9, freightTrain);
+
+        file = directory.resolve("fleet.col");
+        FleetColumns.write(file, fleet);
+    }
+
+    @Test
+    public void T01_TheFileDescribesItsColumns() throws IOException {
+        try (FleetColumns columns = FleetColumns.open(file)) {
+            assertEquals(5, columns.getNumberOfRows());
+            assertEquals(List.of("trainId", "locNumber", "position", "wagonId", "type", "seats", "maxWeight"),
+                    columns.getColumnNames());
+            assertEquals(FleetColumns.Encoding.RUN_LENGTH, columns.column(FleetColumns.TRAIN_ID).getEncoding());
+            assertEquals(FleetColumns.Encoding.PLAIN, columns.column(FleetColumns.WAGON_ID).getEncoding());
+            assertThrows(IllegalArgumentException.class, () -> columns.column("origin"));
+        }
+    }
+
+    @Test
+    public void T02_ColumnsHoldTheWagonsInTrainOrder() throws IOException {
+        try (FleetColumns columns = FleetColumns.open(file)) {
+            assertArrayEquals(new int[] {5, 5, 5, 9, 9}, columns.column(FleetColumns.TRAIN_ID).toArray());
+            assertArrayEquals(new int[] {24531, 24531, 24531, 63427, 63427}, columns.column(FleetColumns.LOC_NUMBER).toArray());
+            assertArrayEquals(new int[] {1, 2, 3, 1, 2}, columns.column(FleetColumns.POSITION).toArray());
+            assertArrayEquals(new int[] {8003, 8002, 8001, 9001, 9002}, columns.column(FleetColumns.WAGON_ID).toArray());
+            assertArrayEquals(new int[] {18, 32, 32, 0, 0}, columns.column(FleetColumns.SEATS).toArray());
+
+            FleetColumns.Column types = columns.column(FleetColumns.TYPE);
+            assertEquals(List.of("PASSENGER", "FREIGHT"), types.getDictionary());
+            assertArrayEquals(new int[] {0, 0, 0, 1, 1}, types.toArray());
+        }
+    }
+
+    @Test
+    public void T03_RunLengthColumnsAreSmallAndSummedPerRun() throws IOException {
+        try (FleetColumns columns = FleetColumns.open(file)) {
+            FleetColumns.Column maxWeights = columns.column(FleetColumns.MAX_WEIGHT);
+            assertEquals(100000, maxWeights.sum());
+            assertEquals(5, maxWeights.size());
+            assertEquals(82, columns.column(FleetColumns.SEATS).sum());
+        }
+    }
+
+    @Test
+    public void T04_OtherFilesAreRejected() throws IOException {
+        Path other = directory.resolve("other.col");
+        Files.writeString(other, "trainId,wagonId\n1,2\n");
+        assertThrows(IOException.class, () -> FleetColumns.open(other));
+    }
+}
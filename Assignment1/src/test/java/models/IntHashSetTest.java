@@ -0,0 +1,45 @@
+package models;
+
+import org.junit.jupiter.api.*;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class IntHashSetTest {
+
+    @Test
+    public void T01_AddContainsRemove() {
+        IntHashSet set = IntHashSet.of(0, 8001, -5, 8001);
+        assertEquals(3, set.size());
+        assertTrue(set.contains(0));
+        assertTrue(set.contains(-5));
+        assertFalse(set.contains(8002));
+        assertTrue(set.remove(0));
+        assertFalse(set.remove(0));
+        assertFalse(set.contains(0));
+        assertEquals(2, set.toArray().length);
+    }
+
+    @Test
+    public void T02_BehavesLikeAHashSet() {
+        IntHashSet set = new IntHashSet();
+        Set<Integer> expected = new HashSet<>();
+        Random random = new Random(13);
+        for (int i = 0; i < 100000; i++) {
+            int value = random.nextInt(2000) - 1000;
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(value), set.add(value));
+            } else {
+                assertEquals(expected.remove(value), set.remove(value));
+            }
+        }
+        assertEquals(expected.size(), set.size());
+        for (int value = -1000; value < 1000; value++) {
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+    }
+}
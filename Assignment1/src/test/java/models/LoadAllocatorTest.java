@@ -0,0 +1,69 @@
+package models;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class LoadAllocatorTest {
+    Train freightTrain, otherTrain;
+    FreightWagon freightWagon1, freightWagon2, freightWagon3;
+
+    @BeforeEach
+    private void setup() {
+        freightWagon1 = new FreightWagon(9001, 50000);
+        freightWagon2 = new FreightWagon(9002, 30000);
+        freightWagon3 = new FreightWagon(9003, 40000);
+        freightTrain = new Train(new Locomotive(63427, 50), "Amsterdam", "Berlin");
+        freightTrain.attachToRear(freightWagon1);
+        freightTrain.attachToRear(freightWagon2);
+        freightTrain.attachToRear(freightWagon3);
+        otherTrain = new Train(new Locomotive(29123, 50), "Amsterdam", "Hamburg");
+    }
+
+    @Test
+    public void T01_WagonsTrackTheirLoad() {
+        assertTrue(freightWagon1.load(20000));
+        assertFalse(freightWagon1.load(40000));
+        assertEquals(30000, freightWagon1.getRemainingCapacity());
+        assertFalse(freightWagon1.unload(30000));
+        assertTrue(freightWagon1.unload(5000));
+        assertEquals(15000, freightTrain.getTotalLoad());
+        assertEquals(105000, freightTrain.getRemainingCapacity());
+    }
+
+    @Test
+    public void T02_FirstFitDecreasing() {
+        int[] weights = {10000, 45000, 30000, 20000, 60000};
+        FreightWagon[] allocation = new LoadAllocator(LoadAllocator.Strategy.FIRST_FIT_DECREASING).allocate(freightTrain, weights);
+        // 45000 -> 9001, 30000 -> 9002, 20000 -> 9003, 10000 -> 9003
+        assertArrayEquals(new FreightWagon[] {freightWagon3, freightWagon1, freightWagon2, freightWagon3, null}, allocation);
+        assertEquals(105000, freightTrain.getTotalLoad());
+        assertEquals(10000, freightWagon3.getRemainingCapacity());
+    }
+
+    @Test
+    public void T03_BestFit() {
+        int[] weights = {25000, 38000, 12000, 5000};
+        FreightWagon[] allocation = new LoadAllocator(LoadAllocator.Strategy.BEST_FIT).allocate(freightTrain, weights);
+        // 25000 -> 9002 (30000), 38000 -> 9003 (40000), 12000 -> 9001 (50000), 5000 -> 9002 (5000 left)
+        assertArrayEquals(new FreightWagon[] {freightWagon2, freightWagon3, freightWagon1, freightWagon2}, allocation);
+        assertEquals(0, freightWagon2.getRemainingCapacity());
+    }
+
+    @Test
+    public void T04_TotalsFollowSplitsAndMoves() {
+        freightWagon1.load(10000);
+        freightWagon2.load(20000);
+        freightWagon3.load(30000);
+        assertTrue(freightTrain.splitAtPosition(2, otherTrain));
+        assertEquals(10000, freightTrain.getTotalLoad());
+        assertEquals(50000, otherTrain.getTotalLoad());
+        assertTrue(otherTrain.moveOneWagon(9003, freightTrain));
+        assertEquals(40000, freightTrain.getTotalLoad());
+        assertEquals(50000, freightTrain.getRemainingCapacity());
+        assertEquals(10000, otherTrain.getRemainingCapacity());
+        freightWagon2.setMaxWeight(25000);
+        assertEquals(5000, otherTrain.getRemainingCapacity());
+    }
+}
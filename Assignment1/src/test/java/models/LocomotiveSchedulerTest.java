@@ -0,0 +1,102 @@
+package models;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class LocomotiveSchedulerTest {
+    Locomotive small, medium, large;
+    LocomotiveScheduler scheduler;
+
+    @BeforeEach
+    private void setup() {
+        small = new Locomotive(1001, 5);
+        medium = new Locomotive(1002, 10);
+        large = new Locomotive(1003, 20);
+        scheduler = new LocomotiveScheduler(List.of(large, small, medium));
+    }
+
+    @Test
+    public void T01_AssignsTheSmallestLocomotiveThatFits() {
+        LocomotiveScheduler.Departure toUtrecht = new LocomotiveScheduler.Departure(1, 100, 200, 4);
+        LocomotiveScheduler.Departure toParis = new LocomotiveScheduler.Departure(2, 110, 300, 8);
+        LocomotiveScheduler.Departure toBerlin = new LocomotiveScheduler.Departure(3, 120, 300, 6);
+        scheduler.plan(List.of(toBerlin, toParis, toUtrecht));
+
+        assertSame(small, scheduler.getLocomotive(toUtrecht));
+        assertSame(medium, scheduler.getLocomotive(toParis));
+        assertSame(large, scheduler.getLocomotive(toBerlin));
+        assertEquals(1 + 2 + 14, scheduler.getIdleCapacity());
+        assertTrue(scheduler.getUnassignedDepartures().isEmpty());
+    }
+
+    @Test
+    public void T02_ReusesLocomotivesThatHaveReturned() {
+        LocomotiveScheduler.Departure first = new LocomotiveScheduler.Departure(1, 100, 200, 5);
+        LocomotiveScheduler.Departure second = new LocomotiveScheduler.Departure(2, 200, 300, 5);
+        LocomotiveScheduler.Departure tooLong = new LocomotiveScheduler.Departure(3, 250, 400, 30);
+        scheduler.plan(List.of(first, second, tooLong));
+
+        assertSame(small, scheduler.getLocomotive(first));
+        assertSame(small, scheduler.getLocomotive(second));
+        assertNull(scheduler.getLocomotive(tooLong));
+        assertEquals(List.of(tooLong), scheduler.getUnassignedDepartures());
+    }
+
+    @Test
+    public void T03_DropOutOnlyReassignsTheDeparturesOfThatLocomotive() {
+        LocomotiveScheduler.Departure early = new LocomotiveScheduler.Departure(1, 100, 150, 3);
+        LocomotiveScheduler.Departure late = new LocomotiveScheduler.Departure(2, 300, 350, 3);
+        LocomotiveScheduler.Departure other = new LocomotiveScheduler.Departure(3, 300, 400, 12);
+        scheduler.plan(List.of(early, late, other));
+        assertSame(small, scheduler.getLocomotive(late));
+        assertSame(large, scheduler.getLocomotive(other));
+
+        assertEquals(1, scheduler.dropOut(small, 200));
+        assertSame(small, scheduler.getLocomotive(early));
+        assertSame(medium, scheduler.getLocomotive(late));
+        assertSame(large, scheduler.getLocomotive(other));
+
+        assertThrows(IllegalArgumentException.class, () -> scheduler.dropOut(new Locomotive(9999, 5), 0));
+    }
+
+    @Test
+    public void T04_RejectsInvalidDepartures() {
+        assertThrows(IllegalArgumentException.class, () -> new LocomotiveScheduler.Departure(1, 200, 100, 3));
+        assertThrows(IllegalArgumentException.class, () -> new LocomotiveScheduler.Departure(1, 100, 200, -1));
+        assertThrows(IllegalArgumentException.class, () -> scheduler.plan(List.of(
+                new LocomotiveScheduler.Departure(1, 100, 200, 3),
+                new LocomotiveScheduler.Departure(1, 150, 250, 3))));
+    }
+
+    @Test
+    public void T05_PlansAFullDayOfDepartures() {
+        Random random = new Random(48);
+        List<Locomotive> pool = new ArrayList<>();
+        for (int i = 0; i < 4000; i++) {
+            pool.add(new Locomotive(i, 5 + random.nextInt(20)));
+        }
+        List<LocomotiveScheduler.Departure> timetable = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            int time = random.nextInt(24 * 60 * 60);
+            timetable.add(new LocomotiveScheduler.Departure(i, time, time + 600 + random.nextInt(3600), random.nextInt(20)));
+        }
+
+        LocomotiveScheduler dayScheduler = new LocomotiveScheduler(pool);
+        dayScheduler.plan(timetable);
+        for (LocomotiveScheduler.Departure departure : timetable) {
+            Locomotive locomotive = dayScheduler.getLocomotive(departure);
+            assertTrue(locomotive == null || locomotive.getMaxWagons() >= departure.getRequiredWagons());
+        }
+
+        int unassigned = dayScheduler.getUnassignedDepartures().size();
+        int reassigned = dayScheduler.dropOut(pool.get(0), 12 * 60 * 60);
+        assertEquals(0, unassigned);
+        assertTrue(reassigned < 100);
+    }
+}
@@ -0,0 +1,109 @@
+package models;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class ManifestImporterTest {
+    @TempDir
+    Path directory;
+
+    Path manifest;
+
+    @BeforeEach
+    private void setup() throws IOException {
+        manifest = directory.resolve("manifest.csv");
+        Files.writeString(manifest, String.join("\n",
+                "1, 24531, 3, Amsterdam, Paris, 8001, passenger, 32",
+                "1, 24531, 3, Amsterdam, Paris, 8002, P, 18",
+                "2, 63427, 50, Amsterdam, Berlin, 9001, freight, 50000",
+                "",
+                "1, 24531, 3, Amsterdam, Paris, 8003, PASSENGER, 44",
+                "1, 24531, 3, Amsterdam, Paris, 8004, passenger, 40",
+                "2, 63427, 50, Amsterdam, Berlin, 9002, F",
+                "2, 63427, 50, Amsterdam, Berlin, 9003, F, 40x00",
+                "2, 63427, 50, Amsterdam, Berlin, 8001, F, 40000",
+                "2, 63427, 50, Amsterdam, Berlin, 9004, P, 40",
+                "2, 63427, 50, Amsterdam, Berlin, 9005, F, 30000\r",
+                "3, 29123, 7, Amsterdam, London, 7001, P, 20"));
+    }
+
+    private void assertImported(ManifestImporter.Result result) {
+        assertEquals(List.of(1, 2, 3), List.copyOf(result.getTrains().keySet()));
+
+        Train passengerTrain = result.getTrain(1);
+        assertEquals("[Loc-24531][Wagon-8001][Wagon-8002][Wagon-8003] with 3 wagons from Amsterdam to Paris\nTotal number of seats: 94",
+                passengerTrain.toString());
+        Train freightTrain = result.getTrain(2);
+        assertEquals(2, freightTrain.getNumberOfWagons());
+        assertEquals(80000, freightTrain.getTotalMaxWeight());
+        assertSame(freightTrain, freightTrain.getLastWagonAttached().getTrain());
+        assertEquals("London", result.getTrain(3).getDestination());
+
+        List<ManifestImporter.Problem> problems = result.getProblems();
+        assertEquals(5, problems.size());
+        assertEquals(6, problems.get(0).getLineNumber());
+        assertTrue(problems.get(0).getMessage().contains("cannot pull more than 3 wagons"));
+        assertEquals("line 7: expected 8 fields but found 7", problems.get(1).toString());
+        assertEquals("line 8: invalid seats|weight", problems.get(2).toString());
+        assertTrue(problems.get(3).getMessage().contains("appears more than once"));
+        assertEquals(10, problems.get(4).getLineNumber());
+    }
+
+    @Test
+    public void T01_ImportAManifestInOneChunk() throws IOException {
+        assertImported(new ManifestImporter().read(manifest));
+    }
+
+    @Test
+    public void T02_ImportAManifestInParallelChunks() throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int chunkSize = 1; chunkSize < 200; chunkSize += 7) {
+                assertImported(new ManifestImporter(pool, chunkSize).read(manifest));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void T03_AnEmptyManifestHasNoTrains() throws IOException {
+        Files.writeString(manifest, "");
+        ManifestImporter.Result result = new ManifestImporter().read(manifest);
+        assertTrue(result.getTrains().isEmpty());
+        assertFalse(result.hasProblems());
+        assertThrows(IllegalArgumentException.class, () -> new ManifestImporter(ForkJoinPool.commonPool(), 0));
+    }
+
+    @Test
+    public void T04_LinesOfATrainMustAgreeOnItsLocomotiveAndRoute() throws IOException {
+        Files.writeString(manifest, String.join("\n",
+                "1, 24531, 3, Amsterdam, Paris, 8001, p, 32",
+                "1, 24531, 5, Amsterdam, Paris, 8002, Passenger, 18",
+                "1, 24531, 3, Amsterdam, Brussels, 8003, P, 44",
+                "1, 24531, 3, Utrecht, Paris, 8004, P, 40",
+                "1, 24531, 3, Amsterdam, Paris, 8005, X, 40",
+                "1, 24531, 3, Amsterdam, Paris, 8006, PASSENGERS, 40",
+                "1, 24531, 3, Amsterdam, Paris, 8007, passenger, 40"));
+        ManifestImporter.Result result = new ManifestImporter().read(manifest);
+        assertEquals("[Loc-24531][Wagon-8001][Wagon-8007] with 2 wagons from Amsterdam to Paris\nTotal number of seats: 72",
+                result.getTrain(1).toString());
+
+        List<ManifestImporter.Problem> problems = result.getProblems();
+        assertEquals(5, problems.size());
+        assertTrue(problems.get(0).getMessage().contains("for 3 wagons, not by 24531 for 5"));
+        assertTrue(problems.get(1).getMessage().contains("not from Amsterdam to Brussels"));
+        assertTrue(problems.get(2).getMessage().contains("not from Utrecht to Paris"));
+        assertEquals("line 5: invalid type", problems.get(3).toString());
+        assertEquals("line 6: invalid type", problems.get(4).toString());
+    }
+}
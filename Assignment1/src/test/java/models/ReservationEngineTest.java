@@ -0,0 +1,133 @@
+package models;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class ReservationEngineTest {
+    ReservationEngine engine;
+    Train passengerTrain, otherTrain;
+    PassengerWagon passengerWagon1, passengerWagon2;
+
+    @BeforeEach
+    private void setup() {
+        engine = new ReservationEngine();
+        passengerWagon1 = new PassengerWagon(8001, 100);
+        passengerWagon2 = new PassengerWagon(8002, 10);
+        passengerTrain = new Train(new Locomotive(24531, 7), "Amsterdam", "Paris");
+        passengerTrain.attachToRear(passengerWagon1);
+        passengerTrain.attachToRear(passengerWagon2);
+        otherTrain = new Train(new Locomotive(29123, 7), "Amsterdam", "London");
+    }
+
+    @Test
+    public void T01_ReserveAndCancelSingleSeats() {
+        assertTrue(engine.reserve(passengerWagon1, 1));
+        assertFalse(engine.reserve(passengerWagon1, 1));
+        assertFalse(engine.reserve(passengerWagon1, 101));
+        assertFalse(engine.reserve(passengerWagon1, 0));
+        assertTrue(engine.isReserved(passengerWagon1, 1));
+        assertTrue(engine.cancel(passengerWagon1, 1));
+        assertFalse(engine.cancel(passengerWagon1, 1));
+        assertEquals(0, engine.getNumberOfReservedSeats(passengerWagon1));
+    }
+
+    @Test
+    public void T02_ReserveBlocksAcrossWordBoundaries() {
+        assertTrue(engine.reserve(passengerWagon1, 62));
+        assertEquals(1, engine.reserveBlock(passengerWagon1, 60));
+        assertEquals(63, engine.reserveBlock(passengerWagon1, 10));
+        assertEquals(0, engine.reserveBlock(passengerWagon1, 30));
+        assertEquals(71, engine.getNumberOfReservedSeats(passengerWagon1));
+        assertEquals(61, engine.findFirstFreeSeat(passengerTrain).getSeatNumber());
+
+        ReservationEngine.Seat seat = engine.reserveBlock(passengerTrain, 50);
+        assertNull(seat);
+        seat = engine.reserveBlock(passengerTrain, 10);
+        assertEquals(passengerWagon1, seat.getWagon());
+        assertEquals(73, seat.getSeatNumber());
+    }
+
+    @Test
+    public void T03_ReservationsMoveAlongWithTheirWagon() {
+        assertEquals(1, engine.reserveBlock(passengerWagon2, 10));
+        assertTrue(passengerTrain.moveOneWagon(8002, otherTrain));
+        assertNull(engine.findFirstFreeSeat(otherTrain));
+        assertEquals(10, engine.getNumberOfReservedSeats(passengerWagon2));
+        assertEquals(passengerWagon1, engine.reserveFirstFreeSeat(passengerTrain).getWagon());
+    }
+
+    @Test
+    public void T04_ConcurrentBookingsNeverShareASeat() throws InterruptedException {
+        Set<String> booked = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(new Thread(() -> {
+                ReservationEngine.Seat seat;
+                while ((seat = engine.reserveFirstFreeSeat(passengerTrain)) != null) {
+                    assertTrue(booked.add(seat.toString()));
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(110, booked.size());
+        assertEquals(100, engine.getNumberOfReservedSeats(passengerWagon1));
+    }
+
+    @Test
+    public void T05_SeatsAddedAfterTheFirstBookingCanBeBooked() {
+        assertEquals(1, engine.reserveBlock(passengerWagon2, 10));
+        assertFalse(engine.reserve(passengerWagon2, 11));
+
+        passengerWagon2.setNumberOfSeats(2000);
+        assertTrue(engine.reserve(passengerWagon2, 11));
+        assertTrue(engine.reserve(passengerWagon2, 1500));
+        // a block across the boundary of the first segment of 1024 seats
+        assertEquals(12, engine.reserveBlock(passengerWagon2, 1030));
+        assertTrue(engine.isReserved(passengerWagon2, 10));
+        assertTrue(engine.isReserved(passengerWagon2, 1041));
+        assertFalse(engine.isReserved(passengerWagon2, 1042));
+        assertEquals(1042, engine.getNumberOfReservedSeats(passengerWagon2));
+
+        passengerWagon2.setNumberOfSeats(5);
+        assertFalse(engine.reserve(passengerWagon2, 6));
+        assertNull(engine.reserveBlock(otherTrain, 1));
+    }
+
+    @Test
+    public void T06_ReservationsOfAWagonThatLeftItsTrainAreDropped() {
+        assertTrue(engine.reserve(passengerWagon1, 1));
+        assertTrue(engine.reserve(passengerWagon2, 1));
+        assertSame(passengerWagon2, passengerTrain.pollLast());
+        assertEquals(0, engine.getNumberOfReservedSeats(passengerWagon2));
+        assertEquals(1, engine.getNumberOfReservedSeats(passengerWagon1));
+
+        // a wagon that joins another train keeps its reservations
+        assertTrue(passengerTrain.moveOneWagon(8001, otherTrain));
+        assertTrue(engine.isReserved(passengerWagon1, 1));
+        assertNotNull(otherTrain.removeRange(1, 1));
+        assertFalse(engine.isReserved(passengerWagon1, 1));
+    }
+
+    @Test
+    public void T07_SearchingAForkDoesNotCopyItsWagons() {
+        Train fork = passengerTrain.fork();
+        fork.reverse();
+        ReservationEngine.Seat seat = engine.reserveFirstFreeSeat(fork);
+        assertEquals(8002, seat.getWagon().getId());
+        assertTrue(fork.isShared());
+        assertEquals(2, engine.reserveBlock(fork, 5).getSeatNumber());
+        assertTrue(fork.isShared());
+    }
+}
@@ -0,0 +1,63 @@
+package models;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class SeatIndexTest {
+    Train passengerTrain, otherTrain;
+    SeatIndex seatIndex;
+
+    @BeforeEach
+    private void setup() {
+        passengerTrain = new Train(new Locomotive(24531, 10), "Amsterdam", "Paris");
+        passengerTrain.attachToRear(new PassengerWagon(8001, 32));
+        passengerTrain.attachToRear(new PassengerWagon(8002, 18));
+        passengerTrain.attachToRear(new PassengerWagon(8003, 44));
+        passengerTrain.attachToRear(new PassengerWagon(8004, 6));
+        otherTrain = new Train(new Locomotive(29123, 10), "Amsterdam", "London");
+        seatIndex = new SeatIndex(passengerTrain);
+    }
+
+    @Test
+    public void T01_FindsTheWagonOfASeat() {
+        assertEquals(100, seatIndex.getTotalNumberOfSeats());
+        assertEquals(1, seatIndex.findPositionOfSeat(1));
+        assertEquals(1, seatIndex.findPositionOfSeat(32));
+        assertEquals(2, seatIndex.findPositionOfSeat(33));
+        assertEquals(4, seatIndex.findPositionOfSeat(100));
+        assertEquals(0, seatIndex.findPositionOfSeat(101));
+        assertEquals(8003, seatIndex.findWagonOfSeat(60).getId());
+        assertEquals(50, seatIndex.seatsInFrontOf(3));
+        assertEquals(62, seatIndex.seatsBetween(2, 3));
+    }
+
+    @Test
+    public void T02_FollowsChangesOfSeatsAndReversal() {
+        ((PassengerWagon) passengerTrain.findWagonById(8002)).setNumberOfSeats(28);
+        assertEquals(110, seatIndex.getTotalNumberOfSeats());
+        assertEquals(2, seatIndex.findPositionOfSeat(60));
+
+        passengerTrain.reverse();
+        assertEquals(8004, seatIndex.findWagonOfSeat(1).getId());
+        assertEquals(8003, seatIndex.findWagonOfSeat(7).getId());
+        assertEquals(50, seatIndex.seatsInFrontOf(3));
+        assertEquals(72, seatIndex.seatsBetween(2, 3));
+
+        ((PassengerWagon) passengerTrain.findWagonById(8004)).setNumberOfSeats(16);
+        assertEquals(8004, seatIndex.findWagonOfSeat(16).getId());
+        assertEquals(8003, seatIndex.findWagonOfSeat(17).getId());
+    }
+
+    @Test
+    public void T03_FollowsStructuralChanges() {
+        assertTrue(passengerTrain.insertAtPosition(2, new PassengerWagon(8005, 10)));
+        assertEquals(8005, seatIndex.findWagonOfSeat(42).getId());
+        assertTrue(passengerTrain.moveOneWagon(8001, otherTrain));
+        assertEquals(8005, seatIndex.findWagonOfSeat(1).getId());
+        assertTrue(passengerTrain.splitAtPosition(3, otherTrain));
+        assertEquals(28, seatIndex.getTotalNumberOfSeats());
+        assertNull(seatIndex.findWagonOfSeat(29));
+    }
+}
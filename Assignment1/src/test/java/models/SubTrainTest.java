@@ -0,0 +1,86 @@
+package models;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class SubTrainTest {
+    Train passengerTrain;
+
+    @BeforeEach
+    private void setup() {
+        passengerTrain = new Train(new Locomotive(24531, 7), "Amsterdam", "Paris");
+        passengerTrain.attachToRear(new PassengerWagon(8001, 32));
+        passengerTrain.attachToRear(new PassengerWagon(8002, 32));
+        passengerTrain.attachToRear(new PassengerWagon(8003, 18));
+        passengerTrain.attachToRear(new PassengerWagon(8004, 44));
+        passengerTrain.attachToRear(new PassengerWagon(8005, 44));
+        passengerTrain.attachToRear(new PassengerWagon(8006, 44));
+        passengerTrain.attachToRear(new PassengerWagon(8007, 40));
+    }
+
+    @Test
+    public void T01_AViewCoversARangeOfWagons() {
+        SubTrain view = passengerTrain.subTrain(3, 5);
+        assertEquals(3, view.getNumberOfWagons());
+        assertEquals(106, view.getTotalNumberOfSeats());
+        assertEquals(0, view.getTotalMaxWeight());
+        assertEquals(8003, view.getFirstWagon().getId());
+        assertEquals(8004, view.findWagonById(8004).getId());
+        assertNull(view.findWagonById(8006));
+        assertEquals(5, view.findPositionById(8005));
+        assertEquals("[Wagon-8003][Wagon-8004][Wagon-8005] at positions 3 to 5 of [Loc-24531]", view.toString());
+        assertEquals(7, passengerTrain.getNumberOfWagons());
+    }
+
+    @Test
+    public void T02_AViewOfAReversedTrainFollowsItsOrder() {
+        passengerTrain.reverse();
+        SubTrain view = passengerTrain.subTrain(1, 2);
+        assertEquals(8007, view.getFirstWagon().getId());
+        assertEquals(8006, view.findWagonById(8006).getId());
+        assertEquals(84, view.getTotalNumberOfSeats());
+        assertThrows(IndexOutOfBoundsException.class, () -> passengerTrain.subTrain(0, 2));
+        assertThrows(IndexOutOfBoundsException.class, () -> passengerTrain.subTrain(3, 8));
+        assertThrows(IndexOutOfBoundsException.class, () -> passengerTrain.subTrain(3, 2));
+    }
+
+    @Test
+    public void T03_StructuralChangesInvalidateTheView() {
+        SubTrain view = passengerTrain.subTrain(2, 4);
+        ((PassengerWagon) view.findWagonById(8003)).setNumberOfSeats(20);
+        assertTrue(view.isValid());
+        assertEquals(96, view.getTotalNumberOfSeats());
+
+        assertNotNull(passengerTrain.pollLast());
+        assertFalse(view.isValid());
+        assertThrows(IllegalStateException.class, view::getTotalNumberOfSeats);
+        assertThrows(IllegalStateException.class, () -> view.findWagonById(8002));
+    }
+
+    @Test
+    public void T04_AForkThatIsCopiedInvalidatesItsViews() {
+        Train fork = passengerTrain.fork();
+        SubTrain view = fork.subTrain(1, 7);
+        assertNotNull(fork.pollFirst());
+        assertFalse(view.isValid());
+        assertTrue(passengerTrain.subTrain(1, 7).isValid());
+    }
+
+    @Test
+    public void T05_ReadingAReversedTrainKeepsItsViewsValid() {
+        passengerTrain.reverse();
+        SubTrain view = passengerTrain.subTrain(2, 3);
+        Train other = new Train(new Locomotive(63427, 7), "Amsterdam", "London");
+        assertTrue(other.canAttach(passengerTrain.findWagonAtPosition(6)));
+        assertEquals(8007, passengerTrain.getFirstWagon().getId());
+        assertTrue(view.isValid());
+        assertEquals(8006, view.getFirstWagon().getId());
+
+        Train small = new Train(new Locomotive(63428, 5), "Amsterdam", "London");
+        assertFalse(small.canAttach(passengerTrain.findWagonAtPosition(2)));
+        assertTrue(small.canAttach(passengerTrain.findWagonAtPosition(3)));
+        assertTrue(view.isValid());
+    }
+}
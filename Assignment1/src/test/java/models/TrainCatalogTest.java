@@ -0,0 +1,62 @@
+package models;
+
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class TrainCatalogTest {
+    TrainCatalog catalog;
+    Train smallParisTrain, largeParisTrain, londonTrain, freightTrain;
+
+    @BeforeEach
+    private void setup() {
+        smallParisTrain = new Train(new Locomotive(1, 10), "Amsterdam", "Paris");
+        smallParisTrain.attachToRear(new PassengerWagon(8001, 20));
+
+        largeParisTrain = new Train(new Locomotive(2, 10), "Amsterdam", "Paris");
+        largeParisTrain.attachToRear(new PassengerWagon(8011, 40));
+        largeParisTrain.attachToRear(new PassengerWagon(8012, 40));
+
+        londonTrain = new Train(new Locomotive(3, 10), "Amsterdam", "London");
+        londonTrain.attachToRear(new PassengerWagon(8021, 100));
+
+        freightTrain = new Train(new Locomotive(4, 10), "Amsterdam", "Paris");
+        freightTrain.attachToRear(new FreightWagon(9001, 50000));
+
+        catalog = new TrainCatalog();
+        catalog.addAll(List.of(smallParisTrain, largeParisTrain, londonTrain, freightTrain));
+    }
+
+    @Test
+    public void T01_FindTrainsByRouteAndSeats() {
+        assertEquals(List.of(freightTrain, smallParisTrain, largeParisTrain), catalog.findTrains("Amsterdam", "Paris"));
+        assertEquals(List.of(largeParisTrain), catalog.findTrainsWithSeats("Amsterdam", "Paris", 21));
+        assertEquals(List.of(smallParisTrain), catalog.findTrainsBySeats("Amsterdam", "Paris", 1, 79));
+        assertEquals(List.of(freightTrain), catalog.findTrainsByMaxWeight("Amsterdam", "Paris", 1, 50000));
+        assertTrue(catalog.findTrains("Paris", "Amsterdam").isEmpty());
+    }
+
+    @Test
+    public void T02_IndexFollowsChangesOfTrains() {
+        assertTrue(largeParisTrain.moveOneWagon(8012, smallParisTrain));
+        assertEquals(List.of(smallParisTrain), catalog.findTrainsWithSeats("Amsterdam", "Paris", 41));
+
+        assertTrue(smallParisTrain.splitAtPosition(1, londonTrain));
+        assertEquals(List.of(londonTrain), catalog.findTrainsWithSeats("Amsterdam", "London", 160));
+        assertEquals(List.of(smallParisTrain, freightTrain), catalog.findTrainsBySeats("Amsterdam", "Paris", 0, 0));
+
+        ((PassengerWagon) largeParisTrain.getFirstWagon()).setNumberOfSeats(10);
+        assertEquals(List.of(largeParisTrain), catalog.findTrainsBySeats("Amsterdam", "Paris", 10, 10));
+    }
+
+    @Test
+    public void T03_RemovedTrainsAreNotFound() {
+        assertTrue(catalog.remove(londonTrain));
+        assertFalse(catalog.remove(londonTrain));
+        assertTrue(catalog.findTrains("Amsterdam", "London").isEmpty());
+        assertEquals(3, catalog.size());
+    }
+}
@@ -0,0 +1,129 @@
+package models;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class TrainCommandStackTest {
+    Train passengerTrain, otherPassengerTrain;
+    TrainCommandStack commands;
+
+    @BeforeEach
+    private void setup() {
+        passengerTrain = new Train(new Locomotive(24531, 7), "Amsterdam", "Paris");
+        passengerTrain.attachToRear(new PassengerWagon(8001, 32));
+        passengerTrain.attachToRear(new PassengerWagon(8002, 18));
+        passengerTrain.attachToRear(new PassengerWagon(8003, 44));
+        passengerTrain.attachToRear(new PassengerWagon(8004, 40));
+
+        otherPassengerTrain = new Train(new Locomotive(24532, 7), "Paris", "Amsterdam");
+        otherPassengerTrain.attachToRear(new PassengerWagon(8011, 50));
+        otherPassengerTrain.attachToRear(new PassengerWagon(8012, 50));
+
+        commands = new TrainCommandStack(10);
+    }
+
+    private static int[] idsOf(Train train) {
+        int[] ids = new int[train.getNumberOfWagons()];
+        int position = 0;
+        for (Wagon wagon : train) {
+            ids[position++] = wagon.getId();
+        }
+        return ids;
+    }
+
+    @Test
+    public void T01_UndoAndRedoAttachAndInsert() {
+        Wagon first = new PassengerWagon(8005, 20);
+        Wagon second = new PassengerWagon(8006, 20);
+        first.attachTail(second);
+
+        assertTrue(commands.attachToRear(passengerTrain, first));
+        assertTrue(commands.insertAtPosition(passengerTrain, 2, otherPassengerTrain.findWagonById(8012)));
+        assertArrayEquals(new int[] { 8001, 8012, 8002, 8003, 8004, 8005, 8006 }, idsOf(passengerTrain));
+
+        assertTrue(commands.undo());
+        assertArrayEquals(new int[] { 8001, 8002, 8003, 8004, 8005, 8006 }, idsOf(passengerTrain));
+        assertArrayEquals(new int[] { 8011, 8012 }, idsOf(otherPassengerTrain));
+
+        assertTrue(commands.undo());
+        assertArrayEquals(new int[] { 8001, 8002, 8003, 8004 }, idsOf(passengerTrain));
+        assertNull(first.getTrain());
+        assertSame(second, first.getNextWagon());
+        assertEquals(4, passengerTrain.getNumberOfWagons());
+        assertFalse(commands.undo());
+
+        assertTrue(commands.redo());
+        assertTrue(commands.redo());
+        assertArrayEquals(new int[] { 8001, 8012, 8002, 8003, 8004, 8005, 8006 }, idsOf(passengerTrain));
+        assertFalse(commands.redo());
+    }
+
+    @Test
+    public void T02_UndoAndRedoMovesSplitsAndReversals() {
+        assertTrue(commands.moveOneWagon(passengerTrain, 8002, otherPassengerTrain));
+        assertTrue(commands.moveOneWagon(passengerTrain, 8001, passengerTrain));
+        commands.reverse(passengerTrain);
+        assertTrue(commands.splitAtPosition(passengerTrain, 2, otherPassengerTrain));
+        assertArrayEquals(new int[] { 8001 }, idsOf(passengerTrain));
+        assertArrayEquals(new int[] { 8011, 8012, 8002, 8004, 8003 }, idsOf(otherPassengerTrain));
+
+        while (commands.undo()) {
+        }
+        assertArrayEquals(new int[] { 8001, 8002, 8003, 8004 }, idsOf(passengerTrain));
+        assertArrayEquals(new int[] { 8011, 8012 }, idsOf(otherPassengerTrain));
+        assertEquals(32 + 18 + 44 + 40, passengerTrain.getTotalNumberOfSeats());
+
+        while (commands.redo()) {
+        }
+        assertArrayEquals(new int[] { 8001 }, idsOf(passengerTrain));
+        assertArrayEquals(new int[] { 8011, 8012, 8002, 8004, 8003 }, idsOf(otherPassengerTrain));
+    }
+
+    @Test
+    public void T03_FailedOperationsAreNotRecorded() {
+        assertFalse(commands.moveOneWagon(passengerTrain, 9999, otherPassengerTrain));
+        assertFalse(commands.splitAtPosition(passengerTrain, 5, otherPassengerTrain));
+        assertFalse(commands.attachToRear(passengerTrain, new FreightWagon(9001, 50000)));
+        assertFalse(commands.canUndo());
+    }
+
+    @Test
+    public void T04_KeepsABoundedNumberOfCommands() {
+        for (int i = 0; i < 15; i++) {
+            commands.reverse(passengerTrain);
+        }
+        int undone = 0;
+        while (commands.undo()) {
+            undone++;
+        }
+        assertEquals(10, undone);
+        assertArrayEquals(new int[] { 8004, 8003, 8002, 8001 }, idsOf(passengerTrain));
+
+        commands.reverse(otherPassengerTrain);
+        assertFalse(commands.canRedo());
+        assertThrows(IllegalArgumentException.class, () -> new TrainCommandStack(0));
+    }
+
+    @Test
+    public void T05_UndoFailsWhenTheTrainChangedOutsideTheStack() {
+        assertTrue(commands.moveOneWagon(passengerTrain, 8002, otherPassengerTrain));
+        otherPassengerTrain.pollLast();
+        assertThrows(IllegalStateException.class, () -> commands.undo());
+        assertTrue(commands.canUndo());
+    }
+
+    @Test
+    public void T06_UndoFailsWithoutChangesWhenThePredecessorIsTaken() {
+        Wagon predecessor = new PassengerWagon(8005, 20);
+        Wagon wagon = new PassengerWagon(8006, 20);
+        predecessor.attachTail(wagon);
+        assertTrue(commands.attachToRear(passengerTrain, wagon));
+        predecessor.attachTail(new PassengerWagon(8007, 20));
+
+        assertThrows(IllegalStateException.class, () -> commands.undo());
+        assertArrayEquals(new int[] { 8001, 8002, 8003, 8004, 8006 }, idsOf(passengerTrain));
+        assertTrue(commands.canUndo());
+    }
+}
@@ -0,0 +1,161 @@
+package models;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class TrainHistoryTest {
+    Train passengerTrain, freightTrain;
+    long time;
+
+    @BeforeEach
+    private void setup() {
+        passengerTrain = new Train(new Locomotive(24531, 7), "Amsterdam", "Paris");
+        passengerTrain.attachToRear(new PassengerWagon(8001, 32));
+        passengerTrain.attachToRear(new PassengerWagon(8002, 18));
+        passengerTrain.attachToRear(new PassengerWagon(8003, 44));
+
+        freightTrain = new Train(new Locomotive(63427, 50), "Amsterdam", "Berlin");
+        freightTrain.attachToRear(new FreightWagon(9001, 50000));
+        freightTrain.attachToRear(new FreightWagon(9002, 60000));
+        time = 1000;
+    }
+
+    private TrainHistory historyOf(Train train, int checkpointInterval, int maxVersions) {
+        return new TrainHistory(train, checkpointInterval, maxVersions, () -> time);
+    }
+
+    @Test
+    public void T01_RecordsEveryStructuralChange() {
+        TrainHistory history = historyOf(passengerTrain, 4, 100);
+        assertEquals(0, history.getVersion());
+
+        time = 1010;
+        passengerTrain.attachToRear(new PassengerWagon(8004, 40));
+        time = 1020;
+        passengerTrain.reverse();
+        time = 1030;
+        assertTrue(passengerTrain.moveOneWagon(8002, new Train(new Locomotive(24532, 7), "Paris", "Amsterdam")));
+        time = 1040;
+        passengerTrain.insertAtFront(new PassengerWagon(8005, 20));
+        time = 1050;
+        ((PassengerWagon) passengerTrain.findWagonById(8003)).setNumberOfSeats(50);
+        time = 1060;
+        passengerTrain.findWagonById(8001).setId(8011);
+
+        assertEquals(5, history.getVersion());
+        assertArrayEquals(new int[] { 8001, 8002, 8003 }, history.getConfiguration(0));
+        assertArrayEquals(new int[] { 8001, 8002, 8003, 8004 }, history.getConfiguration(1));
+        assertArrayEquals(new int[] { 8004, 8003, 8002, 8001 }, history.getConfiguration(2));
+        assertArrayEquals(new int[] { 8004, 8003, 8001 }, history.getConfiguration(3));
+        assertArrayEquals(new int[] { 8005, 8004, 8003, 8001 }, history.getConfiguration(4));
+        assertArrayEquals(new int[] { 8005, 8004, 8003, 8011 }, history.getConfiguration(5));
+    }
+
+    @Test
+    public void T02_FindsTheConfigurationAtATime() {
+        TrainHistory history = historyOf(freightTrain, 2, 100);
+        time = 2000;
+        freightTrain.attachToRear(new FreightWagon(9003, 56000));
+        time = 3000;
+        assertTrue(freightTrain.splitAtPosition(2, new Train(new Locomotive(63428, 50), "Berlin", "Amsterdam")));
+
+        assertEquals(0, history.getVersionAt(1999));
+        assertEquals(1, history.getVersionAt(2000));
+        assertEquals(2, history.getVersionAt(5000));
+        assertEquals(2000, history.getTime(1));
+        assertArrayEquals(new int[] { 9001, 9002, 9003 }, history.getConfigurationAt(2500));
+        assertArrayEquals(new int[] { 9001 }, history.getConfigurationAt(3000));
+        assertThrows(IllegalArgumentException.class, () -> history.getVersionAt(999));
+    }
+
+    @Test
+    public void T03_RetainsABoundedNumberOfVersions() {
+        TrainHistory history = historyOf(freightTrain, 4, 10);
+        for (int i = 0; i < 50; i++) {
+            time++;
+            freightTrain.reverse();
+            if (i % 3 == 0) {
+                time++;
+                freightTrain.attachToRear(new FreightWagon(10000 + i, 1000));
+            }
+        }
+
+        long latest = history.getVersion();
+        assertTrue(latest - history.getOldestVersion() < 10);
+        assertThrows(IllegalArgumentException.class, () -> history.getConfiguration(0));
+
+        int[] expected = new int[freightTrain.getNumberOfWagons()];
+        int position = 0;
+        for (Wagon wagon : freightTrain) {
+            expected[position++] = wagon.getId();
+        }
+        assertArrayEquals(expected, history.getConfiguration(latest));
+        for (long version = history.getOldestVersion(); version <= latest; version++) {
+            assertNotNull(history.getConfiguration(version));
+        }
+    }
+
+    private static int[] idsOf(Train train) {
+        int[] ids = new int[train.getNumberOfWagons()];
+        int position = 0;
+        for (Wagon wagon : train) {
+            ids[position++] = wagon.getId();
+        }
+        return ids;
+    }
+
+    @Test
+    public void T05_ReplaysTheEditsOfEveryOperation() {
+        TrainHistory history = historyOf(passengerTrain, 100, 100);
+        Train otherTrain = new Train(new Locomotive(24532, 7), "Paris", "Amsterdam");
+        otherTrain.attachToRear(new PassengerWagon(8101, 20));
+        otherTrain.attachToRear(new PassengerWagon(8102, 20));
+        List<int[]> expected = new ArrayList<>();
+        expected.add(idsOf(passengerTrain));
+        // every notification is a version of the history
+        passengerTrain.addListener(train -> expected.add(idsOf(train)));
+
+        List<Runnable> operations = List.of(
+                passengerTrain::reverse,
+                () -> passengerTrain.attachToRear(new PassengerWagon(8004, 40)),
+                () -> passengerTrain.insertAtPosition(2, otherTrain.getLastWagonAttached()),
+                () -> passengerTrain.offerFirst(otherTrain.getFirstWagon()),
+                () -> otherTrain.attachToRear(passengerTrain.removeRange(2, 3)),
+                () -> otherTrain.moveRange(1, 2, passengerTrain, 2),
+                () -> passengerTrain.moveWagons(IntHashSet.of(8001, 8003), otherTrain),
+                () -> passengerTrain.pollLast(),
+                () -> passengerTrain.findWagonById(8002).setId(8012),
+                () -> passengerTrain.sortById(),
+                () -> passengerTrain.splitAtPosition(2, otherTrain));
+        operations.forEach(Runnable::run);
+
+        assertEquals(12, history.getVersion());
+        assertEquals(13, expected.size());
+        assertArrayEquals(idsOf(passengerTrain), history.getConfiguration(history.getVersion()));
+        for (int version = 0; version < expected.size(); version++) {
+            assertArrayEquals(expected.get(version), history.getConfiguration(version), "version " + version);
+        }
+    }
+
+    @Test
+    public void T06_IgnoresChangesOfOtherProperties() {
+        TrainHistory history = historyOf(freightTrain, 4, 100);
+        ((FreightWagon) freightTrain.getFirstWagon()).setMaxWeight(70000);
+        assertTrue(((FreightWagon) freightTrain.getFirstWagon()).load(1000));
+        assertEquals(0, history.getVersion());
+    }
+
+    @Test
+    public void T04_DetachStopsRecording() {
+        TrainHistory history = historyOf(passengerTrain, 4, 100);
+        history.detach();
+        passengerTrain.reverse();
+        assertEquals(0, history.getVersion());
+        assertThrows(IllegalArgumentException.class, () -> historyOf(passengerTrain, 4, 3));
+    }
+}
@@ -0,0 +1,152 @@
+package models;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class TrainJournalTest {
+    @TempDir
+    Path directory;
+
+    private void buildFleet(TrainJournal journal) throws IOException {
+        int paris = journal.createTrain(new Locomotive(24531, 7), "Amsterdam", "Paris");
+        int london = journal.createTrain(new Locomotive(63427, 6), "Amsterdam", "London");
+        for (int i = 1; i <= 5; i++) {
+            assertTrue(journal.attachToRear(paris, new PassengerWagon(8000 + i, 10 * i)));
+        }
+        assertTrue(journal.splitAtPosition(paris, 4, london));
+        journal.reverse(paris);
+        assertTrue(journal.moveOneWagon(london, 8004, paris));
+    }
+
+    private void assertFleet(TrainJournal journal) {
+        assertEquals(2, journal.getTrains().size());
+        Train paris = journal.getTrain(0);
+        Train london = journal.getTrain(1);
+        assertEquals("[Loc-24531][Wagon-8003][Wagon-8002][Wagon-8001][Wagon-8004] with 4 wagons from Amsterdam to Paris",
+                paris.toString().split("\n")[0]);
+        assertEquals(100, paris.getTotalNumberOfSeats());
+        assertEquals(1, london.getNumberOfWagons());
+        assertEquals(8005, london.getFirstWagon().getId());
+        assertEquals("London", london.getDestination());
+    }
+
+    @Test
+    public void T01_RecoversFromJournal() throws IOException {
+        try (TrainJournal journal = TrainJournal.open(directory)) {
+            buildFleet(journal);
+        }
+        try (TrainJournal journal = TrainJournal.open(directory)) {
+            assertFleet(journal);
+        }
+    }
+
+    @Test
+    public void T02_RecoversFromSnapshotAndJournalTail() throws IOException {
+        try (TrainJournal journal = TrainJournal.open(directory, 2, 4)) {
+            buildFleet(journal);
+        }
+        assertTrue(Files.exists(directory.resolve("snapshot.bin")));
+        try (TrainJournal journal = TrainJournal.open(directory, 2, 4)) {
+            assertFleet(journal);
+            journal.reverse(0);
+        }
+        try (TrainJournal journal = TrainJournal.open(directory, 2, 4)) {
+            assertEquals(8004, journal.getTrain(0).getFirstWagon().getId());
+        }
+    }
+
+    @Test
+    public void T03_IgnoresATornRecordAtTheEnd() throws IOException {
+        try (TrainJournal journal = TrainJournal.open(directory)) {
+            buildFleet(journal);
+            journal.reverse(0);
+        }
+        Path log = directory.resolve("journal-0.log");
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 2);
+        }
+        try (TrainJournal journal = TrainJournal.open(directory)) {
+            assertFleet(journal);
+            journal.reverse(1);
+        }
+        try (TrainJournal journal = TrainJournal.open(directory)) {
+            assertFleet(journal);
+        }
+    }
+
+    @Test
+    public void T04_RecoversChangesOfTheWagonsAndTheirLoad() throws IOException {
+        try (TrainJournal journal = TrainJournal.open(directory, 2, 6)) {
+            buildFleet(journal);
+            int freight = journal.createTrain(new Locomotive(12345, 4), "Rotterdam", "Duisburg");
+            FreightWagon loaded = new FreightWagon(9001, 100);
+            assertTrue(loaded.load(30));
+            assertTrue(journal.attachToRear(freight, loaded));
+            assertTrue(journal.attachToRear(freight, new FreightWagon(9002, 200)));
+
+            assertTrue(loaded.load(50));
+            assertTrue(loaded.unload(20));
+            ((FreightWagon) journal.getTrain(freight).findWagonById(9002)).setMaxWeight(250);
+            ((PassengerWagon) journal.getTrain(0).findWagonById(8001)).setNumberOfSeats(15);
+            journal.getTrain(1).findWagonById(8005).setId(8055);
+        }
+        try (TrainJournal journal = TrainJournal.open(directory, 2, 6)) {
+            Train freight = journal.getTrain(2);
+            assertEquals(60, ((FreightWagon) freight.findWagonById(9001)).getLoad());
+            assertEquals(60, freight.getTotalLoad());
+            assertEquals(350, freight.getTotalMaxWeight());
+            assertEquals(105, journal.getTrain(0).getTotalNumberOfSeats());
+            assertEquals(8055, journal.getTrain(1).getFirstWagon().getId());
+
+            ((FreightWagon) freight.findWagonById(9002)).load(10);
+        }
+        try (TrainJournal journal = TrainJournal.open(directory, 2, 6)) {
+            assertEquals(70, journal.getTrain(2).getTotalLoad());
+        }
+    }
+
+    @Test
+    public void T04_ClosingStopsRecordingChangesOfTheWagons() throws IOException {
+        Train train;
+        // every change is written at once, so a recorder that is still listening would write to the closed file
+        TrainJournal journal = TrainJournal.open(directory, 1, 100);
+        buildFleet(journal);
+        train = journal.getTrain(0);
+        journal.close();
+
+        PassengerWagon wagon = (PassengerWagon) train.findWagonById(8001);
+        wagon.setNumberOfSeats(15);
+        wagon.setId(8091);
+        assertSame(wagon, train.findWagonById(8091));
+
+        try (TrainJournal reopened = TrainJournal.open(directory)) {
+            assertFleet(reopened);
+        }
+    }
+
+    @Test
+    public void T05_RecoversAnAttachmentToAReversedTrain() throws IOException {
+        try (TrainJournal journal = TrainJournal.open(directory)) {
+            buildFleet(journal);
+            Wagon head = new PassengerWagon(8006, 5);
+            head.attachTail(new PassengerWagon(8007, 5));
+            assertTrue(journal.attachToRear(0, head));
+            assertFalse(journal.attachToRear(0, new FreightWagon(9008, 5)));
+        }
+        try (TrainJournal journal = TrainJournal.open(directory)) {
+            Train paris = journal.getTrain(0);
+            assertEquals("[Loc-24531][Wagon-8003][Wagon-8002][Wagon-8001][Wagon-8004][Wagon-8006][Wagon-8007] with 6 wagons from Amsterdam to Paris",
+                    paris.toString().split("\n")[0]);
+            assertEquals(110, paris.getTotalNumberOfSeats());
+        }
+    }
+}
@@ -2,6 +2,9 @@ package models;
 
 import org.junit.jupiter.api.*;
 
+import java.util.Comparator;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 @TestMethodOrder(MethodOrderer.MethodName.class)
@@ -305,4 +308,463 @@ public class TrainTest {
         trainWithoutWagons.reverse();
         assertEquals(0, trainWithoutWagons.getNumberOfWagons());
     }
+
+    @Test
+    public void T19_CantAttachMixedSequence() {
+        passengerWagon3.attachTail(freightWagon1);
+        assertFalse(trainWithoutWagons.attachToRear(passengerWagon1));
+        assertFalse(trainWithoutWagons.insertAtFront(passengerWagon1));
+        assertEquals(0, trainWithoutWagons.getNumberOfWagons());
+        assertNull(trainWithoutWagons.getType());
+        passengerWagon3.detachTail();
+    }
+
+    @Test
+    public void T19_CantAttachSequenceBeyondCapacity() {
+        assertTrue(passengerTrain.splitAtPosition(6, trainWithoutWagons));
+        // 5 wagons left on a locomotive for 7, a sequence of 3 does not fit
+        assertFalse(passengerTrain.attachToRear(passengerWagon1));
+        assertTrue(passengerTrain.attachToRear(passengerWagon2));
+        assertEquals(7, passengerTrain.getNumberOfWagons());
+        assertEquals(passengerWagon3, passengerTrain.getLastWagonAttached());
+        assertFalse(passengerWagon1.hasNextWagon());
+    }
+
+    @Test
+    public void T19_TakingAWagonFromAnotherTrainUpdatesThatTrain() {
+        Wagon last = passengerTrain.getLastWagonAttached();
+        assertTrue(trainWithoutWagons.attachToRear(last));
+        assertEquals(6, passengerTrain.getNumberOfWagons());
+        assertEquals(8006, passengerTrain.getLastWagonAttached().getId());
+        assertEquals(trainWithoutWagons, last.getTrain());
+        assertEquals(1, trainWithoutWagons.getNumberOfWagons());
+    }
+
+    @Test
+    public void T19_CanInsertInTheMiddleOfATrain() {
+        assertTrue(trainWithoutWagons.attachToRear(new PassengerWagon(8021, 10)));
+        assertTrue(trainWithoutWagons.attachToRear(new PassengerWagon(8022, 10)));
+        assertTrue(trainWithoutWagons.insertAtPosition(2, passengerWagon1));
+        assertEquals(5, trainWithoutWagons.getNumberOfWagons());
+        assertEquals(8011, trainWithoutWagons.findWagonAtPosition(2).getId());
+        assertEquals(8013, trainWithoutWagons.findWagonAtPosition(4).getId());
+        assertEquals(8022, trainWithoutWagons.getLastWagonAttached().getId());
+        assertEquals(170, trainWithoutWagons.getTotalNumberOfSeats());
+    }
+
+    @Test
+    public void T20_ReversedTrainHonoursItsOrderInAllOperations() {
+        passengerTrain.splitAtPosition(4, trainWithoutWagons);
+        passengerTrain.reverse();
+        assertEquals(8001, passengerTrain.getLastWagonAttached().getId());
+        assertEquals(8002, passengerTrain.findWagonAtPosition(2).getId());
+        assertTrue(passengerTrain.toString().startsWith("[Loc-24531][Wagon-8003][Wagon-8002][Wagon-8001] "));
+
+        assertTrue(passengerTrain.attachToRear(new PassengerWagon(8021, 10)));
+        assertTrue(passengerTrain.insertAtFront(new PassengerWagon(8020, 10)));
+        assertTrue(passengerTrain.insertAtPosition(3, new PassengerWagon(8022, 10)));
+        assertEquals(6, passengerTrain.getNumberOfWagons());
+        assertEquals(8022, passengerTrain.findWagonAtPosition(3).getId());
+        assertEquals(8021, passengerTrain.getLastWagonAttached().getId());
+
+        assertTrue(passengerTrain.splitAtPosition(5, trainWithoutWagons));
+        assertEquals(8021, trainWithoutWagons.getLastWagonAttached().getId());
+        assertEquals(8001, trainWithoutWagons.findWagonAtPosition(5).getId());
+
+        trainWithoutWagons.reverse();
+        assertTrue(trainWithoutWagons.moveOneWagon(8004, passengerTrain));
+        assertEquals(8004, passengerTrain.getLastWagonAttached().getId());
+        assertEquals(8021, trainWithoutWagons.getFirstWagon().getId());
+        assertEquals(8005, trainWithoutWagons.getLastWagonAttached().getId());
+
+        int[] expected = {8020, 8003, 8022, 8002, 8004};
+        Wagon wagon = passengerTrain.getFirstWagon();
+        for (int id : expected) {
+            assertEquals(id, wagon.getId());
+            wagon = wagon.getNextWagon();
+        }
+        assertNull(wagon);
+    }
+
+    @Test
+    public void T20_WagonsOfAReversedTrainCanBeWalkedByTheirLinks() {
+        passengerTrain.splitAtPosition(5, trainWithoutWagons);
+        passengerTrain.reverse();
+        assertEquals("[Loc-24531][Wagon-8004][Wagon-8003][Wagon-8002][Wagon-8001] with 4 wagons from Amsterdam to Paris\nTotal number of seats: 126",
+                passengerTrain.toString());
+
+        Wagon first = passengerTrain.getFirstWagon();
+        assertFalse(first.hasPreviousWagon());
+        assertEquals(4, first.getTailLength() + 1);
+        assertSame(passengerTrain.getLastWagonAttached(), first.getLastWagonAttached());
+        assertFalse(passengerTrain.getLastWagonAttached().hasNextWagon());
+        assertEquals(8002, passengerTrain.findWagonAtPosition(3).getId());
+        assertEquals(8001, passengerTrain.findWagonAtPosition(3).getNextWagon().getId());
+    }
+
+    @Test
+    public void T21_MoveRangeIntoTheMiddleOfAnotherTrain() {
+        Train train = new Train(new Locomotive(13, 13), "Here", "There");
+        train.attachToRear(new PassengerWagon(8021, 10));
+        train.attachToRear(new PassengerWagon(8022, 10));
+
+        assertTrue(passengerTrain.moveRange(3, 5, train, 2));
+        assertEquals(4, passengerTrain.getNumberOfWagons());
+        assertEquals(8006, passengerTrain.findWagonAtPosition(3).getId());
+        assertEquals(148, passengerTrain.getTotalNumberOfSeats());
+        assertEquals(5, train.getNumberOfWagons());
+        assertEquals(8003, train.findWagonAtPosition(2).getId());
+        assertEquals(8005, train.findWagonAtPosition(4).getId());
+        assertEquals(8022, train.getLastWagonAttached().getId());
+        assertEquals(train, train.findWagonAtPosition(3).getTrain());
+    }
+
+    @Test
+    public void T21_MoveRangeFromTheEndsOfATrain() {
+        assertTrue(passengerTrain.moveRange(1, 2, trainWithoutWagons, 1));
+        assertTrue(passengerTrain.moveRange(4, 5, trainWithoutWagons, 3));
+        assertTrue(passengerTrain.moveRange(1, 1, trainWithoutWagons, 1));
+        assertEquals(2, passengerTrain.getNumberOfWagons());
+        assertEquals(8004, passengerTrain.getFirstWagon().getId());
+        assertEquals(8005, passengerTrain.getLastWagonAttached().getId());
+        assertEquals(5, trainWithoutWagons.getNumberOfWagons());
+        assertTrue(trainWithoutWagons.toString().startsWith(
+                "[Loc-29123][Wagon-8003][Wagon-8001][Wagon-8002][Wagon-8006][Wagon-8007] "));
+    }
+
+    @Test
+    public void T21_CantMoveRangeBeyondCapacityOrType() {
+        assertFalse(passengerTrain.moveRange(1, 3, freightTrain, 1));
+        assertFalse(passengerTrain.moveRange(3, 2, trainWithoutWagons, 1));
+        assertFalse(passengerTrain.moveRange(6, 8, trainWithoutWagons, 1));
+        assertFalse(passengerTrain.moveRange(1, 2, trainWithoutWagons, 2));
+        assertTrue(passengerTrain.splitAtPosition(3, trainWithoutWagons));
+        assertTrue(trainWithoutWagons.attachToRear(new PassengerWagon(8021, 10)));
+        assertFalse(passengerTrain.moveRange(1, 2, trainWithoutWagons, 1));
+        assertEquals(2, passengerTrain.getNumberOfWagons());
+    }
+
+    @Test
+    public void T22_MoveWagonsBySetOfIds() {
+        assertTrue(passengerTrain.moveWagons(IntHashSet.of(8002, 8005, 8007, 9999), trainWithoutWagons));
+        assertEquals(4, passengerTrain.getNumberOfWagons());
+        assertEquals(8006, passengerTrain.getLastWagonAttached().getId());
+        assertEquals(3, trainWithoutWagons.getNumberOfWagons());
+        assertEquals(8002, trainWithoutWagons.getFirstWagon().getId());
+        assertEquals(8005, trainWithoutWagons.findWagonAtPosition(2).getId());
+        assertEquals(8007, trainWithoutWagons.getLastWagonAttached().getId());
+        assertEquals(116, trainWithoutWagons.getTotalNumberOfSeats());
+        assertFalse(passengerTrain.moveWagons(IntHashSet.of(9999), trainWithoutWagons));
+    }
+
+    @Test
+    public void T22_CantMoveWagonsBeyondCapacity() {
+        assertTrue(passengerTrain.splitAtPosition(4, trainWithoutWagons));
+        // ids that are not on the train do not count against the capacity
+        assertTrue(passengerTrain.moveWagons(IntHashSet.of(8001, 8002, 8003, 8004, 8005), trainWithoutWagons));
+        assertEquals(7, trainWithoutWagons.getNumberOfWagons());
+        assertFalse(passengerTrain.hasWagons());
+
+        assertTrue(passengerTrain.attachToRear(passengerWagon1));
+        assertFalse(passengerTrain.moveWagons(IntHashSet.of(8011, 8012, 8013, 1, 2, 3, 4, 5), trainWithoutWagons));
+        assertEquals(3, passengerTrain.getNumberOfWagons());
+        assertFalse(trainWithoutWagons.moveWagons(IntHashSet.of(8001), freightTrain));
+        assertFalse(trainWithoutWagons.moveWagons(IntHashSet.of(8001), trainWithoutWagons));
+    }
+
+    @Test
+    public void T22_DuplicateIdsCountAgainstTheCapacity() {
+        passengerTrain.findWagonById(8002).setId(8001);
+        Train small = new Train(new Locomotive(24532, 1), "Paris", "Amsterdam");
+        assertFalse(passengerTrain.moveWagons(IntHashSet.of(8001), small));
+        assertEquals(7, passengerTrain.getNumberOfWagons());
+        assertFalse(small.hasWagons());
+
+        assertTrue(passengerTrain.moveWagons(IntHashSet.of(8001), trainWithoutWagons));
+        assertEquals(2, trainWithoutWagons.getNumberOfWagons());
+        assertEquals(5, passengerTrain.getNumberOfWagons());
+    }
+
+    @Test
+    public void T23_ForkSharesWagonsUntilChanged() {
+        Train fork = passengerTrain.fork();
+        assertTrue(fork.isShared());
+        assertTrue(passengerTrain.isShared());
+        assertEquals(passengerTrain.toString(), fork.toString());
+        assertEquals(254, fork.getTotalNumberOfSeats());
+        assertTrue(fork.isShared());
+
+        assertTrue(fork.moveOneWagon(8003, trainWithoutWagons));
+        assertFalse(fork.isShared());
+        assertFalse(passengerTrain.isShared());
+        assertEquals(6, fork.getNumberOfWagons());
+        assertEquals(236, fork.getTotalNumberOfSeats());
+        assertEquals(7, passengerTrain.getNumberOfWagons());
+        assertEquals(8003, passengerTrain.findWagonAtPosition(3).getId());
+        assertEquals(254, passengerTrain.getTotalNumberOfSeats());
+        assertNotSame(passengerTrain.getFirstWagon(), fork.getFirstWagon());
+        assertSame(fork, fork.getFirstWagon().getTrain());
+        assertSame(passengerTrain, passengerTrain.getFirstWagon().getTrain());
+    }
+
+    @Test
+    public void T23_ChangingTheOriginalLeavesItsForksOnACopy() {
+        Wagon first = passengerTrain.getFirstWagon();
+        Train fork1 = passengerTrain.fork();
+        Train fork2 = fork1.fork();
+
+        assertTrue(passengerTrain.splitAtPosition(5, trainWithoutWagons));
+        assertSame(first, passengerTrain.getFirstWagon());
+        assertEquals(4, passengerTrain.getNumberOfWagons());
+        assertTrue(fork1.isShared());
+        assertEquals(fork1.toString(), fork2.toString());
+        assertNotSame(first, fork1.getFirstWagon());
+        assertEquals(7, fork2.getNumberOfWagons());
+        assertEquals(7, fork2.findPositionById(8007));
+
+        fork2.reverse();
+        assertEquals(7, fork2.findPositionById(8001));
+        assertEquals(7, fork1.findPositionById(8007));
+        // reading a reversed fork does not rewrite or copy the shared wagons
+        assertTrue(fork1.isShared());
+
+        // handing out a wagon does copy them, as fork1 owns them
+        assertEquals(8007, fork2.getFirstWagon().getId());
+        assertFalse(fork1.isShared());
+        assertSame(fork2, fork2.getFirstWagon().getTrain());
+        assertEquals(8001, fork1.getFirstWagon().getId());
+        assertSame(fork1, fork1.getFirstWagon().getTrain());
+    }
+
+    @Test
+    public void T23_AWagonChangeLeavesTheForksOnACopy() {
+        Train fork = passengerTrain.fork();
+        ((PassengerWagon) passengerTrain.findWagonById(8003)).setNumberOfSeats(20);
+        assertEquals(256, passengerTrain.getTotalNumberOfSeats());
+        assertEquals(254, fork.getTotalNumberOfSeats());
+        assertFalse(fork.isShared());
+        assertEquals(0, fork.getVersion());
+        assertEquals(18, ((PassengerWagon) fork.findWagonById(8003)).getNumberOfSeats());
+    }
+
+    @Test
+    public void T23_AForkHandsOutItsOwnWagons() {
+        Train fork = passengerTrain.fork();
+        assertTrue(trainWithoutWagons.attachToRear(fork.findWagonById(8005)));
+        assertEquals(7, passengerTrain.getNumberOfWagons());
+        assertEquals(254, passengerTrain.getTotalNumberOfSeats());
+        assertEquals(4, fork.getNumberOfWagons());
+        assertEquals(3, trainWithoutWagons.getNumberOfWagons());
+
+        ((PassengerWagon) fork.getFirstWagon()).setNumberOfSeats(99);
+        assertEquals(193, fork.getTotalNumberOfSeats());
+        assertEquals(254, passengerTrain.getTotalNumberOfSeats());
+        assertEquals(32, ((PassengerWagon) passengerTrain.getFirstWagon()).getNumberOfSeats());
+
+        Train otherFork = passengerTrain.fork();
+        Wagon last = otherFork.pollLast();
+        assertTrue(trainWithoutWagons.offerFirst(last));
+        assertEquals(7, passengerTrain.getNumberOfWagons());
+        assertEquals(8007, passengerTrain.getLastWagonAttached().getId());
+        assertNotSame(last, passengerTrain.getLastWagonAttached());
+        assertFalse(otherFork.offerLast(freightWagon1));
+        assertEquals(6, otherFork.getNumberOfWagons());
+    }
+
+    @Test
+    public void T23_FailedChangesLeaveTheForksShared() {
+        Train fork = passengerTrain.fork();
+        assertFalse(fork.moveOneWagon(8001, freightTrain));
+        assertFalse(fork.moveOneWagon(9999, trainWithoutWagons));
+        assertFalse(fork.splitAtPosition(1, freightTrain));
+        assertFalse(fork.moveWagons(IntHashSet.of(8001), freightTrain));
+        assertFalse(fork.moveWagons(IntHashSet.of(9999), trainWithoutWagons));
+        assertNull(trainWithoutWagons.fork().pollFirst());
+        assertTrue(fork.isShared());
+        assertTrue(passengerTrain.isShared());
+        assertEquals(0, fork.getVersion());
+    }
+
+    @Test
+    public void T23_ForkAFleet() {
+        List<Train> forks = Train.fork(List.of(passengerTrain, freightTrain, trainWithoutWagons));
+        assertEquals(3, forks.size());
+        assertEquals(120000, forks.get(1).getTotalMaxWeight());
+        assertFalse(forks.get(2).isShared());
+        assertTrue(forks.get(1).attachToRear(freightWagon1));
+        assertEquals(3, freightTrain.getNumberOfWagons());
+        assertEquals(5, forks.get(1).getNumberOfWagons());
+    }
+
+    @Test
+    public void T24_SortBySeatsIsStable() {
+        passengerTrain.sortBy(wagon -> ((PassengerWagon) wagon).getNumberOfSeats());
+        assertEquals("[Loc-24531][Wagon-8003][Wagon-8001][Wagon-8002][Wagon-8007][Wagon-8004][Wagon-8005][Wagon-8006] with 7 wagons from Amsterdam to Paris\nTotal number of seats: 254",
+                passengerTrain.toString());
+        assertEquals(8006, passengerTrain.getLastWagonAttached().getId());
+        assertEquals(8005, passengerTrain.getLastWagonAttached().getPreviousWagon().getId());
+        assertEquals(6, passengerTrain.getFirstWagon().getTailLength());
+    }
+
+    @Test
+    public void T24_SortAReversedTrainById() {
+        passengerTrain.reverse();
+        passengerTrain.sortById();
+        int id = 8001;
+        for (Wagon wagon : passengerTrain) {
+            assertEquals(id++, wagon.getId());
+        }
+        assertSame(passengerTrain.findWagonAtPosition(7), passengerTrain.getLastWagonAttached());
+
+        freightTrain.sort(Comparator.comparingInt(wagon -> -((FreightWagon) wagon).getMaxWeight()));
+        assertEquals(9001, freightTrain.getFirstWagon().getId());
+        freightTrain.sortBy(wagon -> ((FreightWagon) wagon).getMaxWeight());
+        assertEquals(9003, freightTrain.getFirstWagon().getId());
+        assertEquals(9001, freightTrain.getLastWagonAttached().getId());
+    }
+
+    @Test
+    public void T24_AFailingComparatorLeavesAValidTrain() {
+        assertThrows(IllegalStateException.class, () -> passengerTrain.sort((a, b) -> {
+            if (a.getId() == 8006 || b.getId() == 8006) {
+                throw new IllegalStateException();
+            }
+            return Integer.compare(b.getId(), a.getId());
+        }));
+        int count = 0;
+        for (Wagon wagon = passengerTrain.getFirstWagon(); wagon != null; wagon = wagon.getNextWagon()) {
+            count++;
+        }
+        assertEquals(7, count);
+        assertEquals(7, passengerTrain.getNumberOfWagons());
+        assertNull(passengerTrain.getLastWagonAttached().getNextWagon());
+    }
+
+    @Test
+    public void T25_ToStringIsCachedUntilAChange() {
+        String rendered = passengerTrain.toString();
+        assertSame(rendered, passengerTrain.toString());
+
+        ((PassengerWagon) passengerTrain.findWagonById(8003)).setNumberOfSeats(20);
+        assertTrue(passengerTrain.toString().endsWith("Total number of seats: 256"));
+        passengerTrain.findWagonById(8003).setId(8103);
+        assertTrue(passengerTrain.toString().contains("[Wagon-8002][Wagon-8103][Wagon-8004]"));
+        passengerTrain.getEngine().setLocNumber(24532);
+        assertTrue(passengerTrain.toString().startsWith("[Loc-24532][Wagon-8001]"));
+
+        passengerTrain.reverse();
+        assertTrue(passengerTrain.toString().startsWith("[Loc-24532][Wagon-8007]"));
+        rendered = passengerTrain.toString();
+        assertFalse(passengerTrain.attachToRear(new PassengerWagon(8008, 10)));
+        assertSame(rendered, passengerTrain.toString());
+        assertTrue(passengerTrain.splitAtPosition(7, trainWithoutWagons));
+        assertTrue(passengerTrain.toString().endsWith("[Wagon-8002] with 6 wagons from Amsterdam to Paris\nTotal number of seats: 224"));
+    }
+
+    @Test
+    public void T26_UseATrainAsAQueueOfWagons() {
+        assertNull(trainWithoutWagons.peekFirst());
+        assertNull(trainWithoutWagons.pollLast());
+
+        assertTrue(trainWithoutWagons.offerLast(passengerWagon2));
+        assertEquals(8013, passengerWagon1.getNextWagon().getId());
+        assertTrue(trainWithoutWagons.offerLast(passengerWagon1));
+        assertTrue(trainWithoutWagons.offerFirst(passengerTrain.peekLast()));
+        assertEquals(6, passengerTrain.getNumberOfWagons());
+        assertEquals("[Loc-29123][Wagon-8007][Wagon-8012][Wagon-8011] with 3 wagons from Amsterdam to London\nTotal number of seats: 140",
+                trainWithoutWagons.toString());
+
+        assertEquals(8007, trainWithoutWagons.pollFirst().getId());
+        assertEquals(8011, trainWithoutWagons.pollLast().getId());
+        assertEquals(8012, trainWithoutWagons.peekFirst().getId());
+        assertEquals(50, trainWithoutWagons.getTotalNumberOfSeats());
+        assertFalse(trainWithoutWagons.offerLast(freightWagon1));
+        assertFalse(trainWithoutWagons.offerLast(trainWithoutWagons.peekFirst()));
+    }
+
+    @Test
+    public void T26_QueueOperationsOnAReversedTrain() {
+        passengerTrain.reverse();
+        assertEquals(8007, passengerTrain.pollFirst().getId());
+        assertEquals(8001, passengerTrain.pollLast().getId());
+        assertFalse(passengerTrain.offerLast(freightWagon2));
+        assertTrue(passengerTrain.offerLast(passengerWagon1));
+        assertTrue(passengerTrain.offerFirst(passengerWagon3));
+        assertFalse(passengerTrain.offerFirst(new PassengerWagon(8014, 10)));
+        assertEquals(8013, passengerTrain.peekFirst().getId());
+        assertEquals(8011, passengerTrain.peekLast().getId());
+        assertEquals(8006, passengerTrain.findWagonAtPosition(2).getId());
+        assertEquals(7, passengerTrain.getNumberOfWagons());
+        assertNull(passengerWagon2.getNextWagon());
+    }
+
+    @Test
+    public void T27_TheIdFilterFollowsTheWagonsOfTheTrain() {
+        assertTrue(passengerTrain.mightContainWagon(8003));
+        assertNull(passengerTrain.findWagonById(9001));
+
+        assertTrue(passengerTrain.moveOneWagon(8003, trainWithoutWagons));
+        assertNull(passengerTrain.findWagonById(8003));
+        assertTrue(trainWithoutWagons.mightContainWagon(8003));
+        assertTrue(trainWithoutWagons.insertAtFront(passengerWagon1));
+        assertEquals(8012, trainWithoutWagons.findWagonById(8012).getId());
+
+        trainWithoutWagons.findWagonById(8012).setId(8112);
+        assertEquals(8112, trainWithoutWagons.findWagonById(8112).getId());
+        assertNull(trainWithoutWagons.findWagonById(8012));
+        assertTrue(passengerTrain.splitAtPosition(5, trainWithoutWagons));
+        assertEquals(8007, trainWithoutWagons.findWagonById(8007).getId());
+        assertNull(passengerTrain.findWagonById(8007));
+    }
+
+    @Test
+    public void T27_RemovedIdsAreDroppedByARebuild() {
+        Train train = new Train(new Locomotive(1, 1000), "Here", "There");
+        for (int id = 1; id <= 1000; id++) {
+            assertTrue(train.attachToRear(new PassengerWagon(id, 10)));
+        }
+        assertTrue(train.mightContainWagon(1));
+        for (int i = 0; i < 990; i++) {
+            train.pollFirst();
+        }
+
+        int falsePositives = 0;
+        for (int id = 1; id <= 990; id++) {
+            if (train.mightContainWagon(id)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 50);
+        assertTrue(train.mightContainWagon(995));
+    }
+
+    @Test
+    public void T27_FindTheTrainOfAWagonInAFleet() {
+        List<Train> fleet = List.of(passengerTrain, trainWithoutWagons, freightTrain);
+        assertSame(freightTrain, Train.findTrainWithWagon(fleet, 9002));
+        assertSame(passengerTrain, Train.findTrainWithWagon(fleet, 8006));
+        assertNull(Train.findTrainWithWagon(fleet, 8011));
+        Train fork = freightTrain.fork();
+        assertSame(fork, Train.findTrainWithWagon(List.of(passengerTrain, fork), 9003));
+    }
+
+    @Test
+    public void T28_RemoveARangeAsAFreeSequence() {
+        passengerTrain.reverse();
+        assertEquals(2, passengerTrain.findPositionById(8006));
+        assertEquals(0, passengerTrain.findPositionById(9001));
+
+        Wagon removed = passengerTrain.removeRange(2, 4);
+        assertEquals(8006, removed.getId());
+        assertEquals(2, removed.getTailLength());
+        assertNull(removed.getTrain());
+        assertNull(removed.getNextWagon().getTrain());
+        assertEquals(4, passengerTrain.getNumberOfWagons());
+        assertEquals(8007, passengerTrain.getFirstWagon().getId());
+        assertEquals(8003, passengerTrain.findWagonAtPosition(2).getId());
+        assertEquals(40 + 18 + 32 + 32, passengerTrain.getTotalNumberOfSeats());
+
+        assertNull(passengerTrain.removeRange(3, 5));
+        assertNull(trainWithoutWagons.removeRange(1, 1));
+    }
 }
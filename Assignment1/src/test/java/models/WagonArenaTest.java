@@ -0,0 +1,90 @@
+package models;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class WagonArenaTest {
+    WagonArena arena;
+    Train passengerTrain, freightTrain;
+
+    @BeforeEach
+    private void setup() {
+        arena = new WagonArena();
+        passengerTrain = new Train(new Locomotive(24531, 7), "Amsterdam", "Paris");
+        passengerTrain.attachToRear(new PassengerWagon(8001, 32));
+        passengerTrain.attachToRear(new PassengerWagon(8002, 18));
+        passengerTrain.attachToRear(new PassengerWagon(8003, 44));
+        freightTrain = new Train(new Locomotive(63427, 50), "Amsterdam", "Berlin");
+        freightTrain.attachToRear(new FreightWagon(9001, 50000));
+        freightTrain.attachToRear(new FreightWagon(9002, 40000));
+    }
+
+    @Test
+    public void T01_AttributesArePackedIntoOneWord() {
+        long attributes = WagonArena.pack(WagonType.FREIGHT, 0, 4000000000L);
+        assertEquals(WagonType.FREIGHT, WagonArena.typeOf(attributes));
+        assertEquals(0, WagonArena.seatsOf(attributes));
+        assertEquals(4000000000L, WagonArena.maxWeightOf(attributes));
+
+        attributes = WagonArena.pack(new PassengerWagon(1, 120));
+        assertEquals(WagonType.PASSENGER, WagonArena.typeOf(attributes));
+        assertEquals(120, WagonArena.seatsOf(attributes));
+        assertThrows(IllegalArgumentException.class, () -> WagonArena.pack(WagonType.PASSENGER, -1, 0));
+    }
+
+    @Test
+    public void T02_AFrozenTrainReportsTheSameAsTheTrain() {
+        FrozenTrain frozenPassengerTrain = arena.freeze(passengerTrain);
+        FrozenTrain frozenFreightTrain = arena.freeze(freightTrain);
+        assertEquals(5, arena.size());
+
+        assertEquals(passengerTrain.toString(), frozenPassengerTrain.toString());
+        assertEquals(94, frozenPassengerTrain.getTotalNumberOfSeats());
+        assertEquals(90000, frozenFreightTrain.getTotalMaxWeight());
+        assertTrue(frozenFreightTrain.isFreightTrain());
+        assertEquals(8002, frozenPassengerTrain.getWagonIdAtPosition(2));
+        assertEquals(2, frozenFreightTrain.findPositionById(9002));
+        assertEquals(0, frozenFreightTrain.findPositionById(8002));
+        assertThrows(IndexOutOfBoundsException.class, () -> frozenPassengerTrain.getWagonIdAtPosition(4));
+    }
+
+    @Test
+    public void T03_AFrozenTrainDoesNotFollowTheTrain() {
+        FrozenTrain frozen = arena.freeze(passengerTrain);
+        passengerTrain.reverse();
+        ((PassengerWagon) passengerTrain.getFirstWagon()).setNumberOfSeats(1);
+        assertEquals(8001, frozen.getWagonIdAtPosition(1));
+        assertEquals(94, frozen.getTotalNumberOfSeats());
+
+        Train thawed = frozen.thaw();
+        assertEquals(3, thawed.getNumberOfWagons());
+        assertEquals(8003, thawed.getLastWagonAttached().getId());
+        assertEquals(94, thawed.getTotalNumberOfSeats());
+    }
+
+    @Test
+    public void T04_AFailedFreezeLeavesTheArenaUnchanged() {
+        arena.freeze(freightTrain);
+        passengerTrain.attachToRear(new PassengerWagon(8004, 1 << 24));
+        assertThrows(IllegalArgumentException.class, () -> arena.freeze(passengerTrain));
+        assertEquals(2, arena.size());
+
+        FrozenTrain frozen = arena.freeze(freightTrain);
+        assertEquals(4, arena.size());
+        assertEquals(9001, frozen.getWagonIdAtPosition(1));
+        assertEquals(90000, frozen.getTotalMaxWeight());
+    }
+
+    @Test
+    public void T05_TheLoadOfFreightWagonsIsKept() {
+        assertTrue(((FreightWagon) freightTrain.getFirstWagon()).load(1200));
+        FrozenTrain frozen = arena.freeze(freightTrain);
+        assertEquals(1200, frozen.getTotalLoad());
+
+        Train thawed = frozen.thaw();
+        assertEquals(1200, ((FreightWagon) thawed.getFirstWagon()).getLoad());
+        assertEquals(1200, thawed.getTotalLoad());
+    }
+}
@@ -0,0 +1,71 @@
+package models;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class WagonQueryTest {
+    Train passengerTrain, freightTrain;
+
+    @BeforeEach
+    private void setup() {
+        passengerTrain = new Train(new Locomotive(24531, 7), "Amsterdam", "Paris");
+        passengerTrain.attachToRear(new PassengerWagon(8001, 32));
+        passengerTrain.attachToRear(new PassengerWagon(8002, 32));
+        passengerTrain.attachToRear(new PassengerWagon(8003, 18));
+        passengerTrain.attachToRear(new PassengerWagon(8004, 44));
+        passengerTrain.attachToRear(new PassengerWagon(8005, 44));
+        passengerTrain.attachToRear(new PassengerWagon(8006, 44));
+        passengerTrain.attachToRear(new PassengerWagon(8007, 40));
+
+        freightTrain = new Train(new Locomotive(63427, 50), "Amsterdam", "Berlin");
+        freightTrain.attachToRear(new FreightWagon(9001, 50000));
+        freightTrain.attachToRear(new FreightWagon(9002, 60000));
+        freightTrain.attachToRear(new FreightWagon(9003, 30000));
+        freightTrain.attachToRear(new FreightWagon(9004, 56000));
+    }
+
+    @Test
+    public void T01_FindFirstAndCount() {
+        assertEquals(8004, passengerTrain.query().whereSeats(seats -> seats > 40).findFirst().getId());
+        assertEquals(2, freightTrain.query().whereMaxWeight(weight -> weight > 55000).count());
+        assertNull(passengerTrain.query().whereSeats(seats -> seats > 100).findFirst());
+        assertEquals(0, freightTrain.query().whereSeats(seats -> true).count());
+    }
+
+    @Test
+    public void T02_ProjectIdsInARangeWithALimit() {
+        assertArrayEquals(new int[] {8002, 8003, 8004},
+                passengerTrain.query().whereId(id -> id >= 8002 && id <= 8004).ids());
+        assertArrayEquals(new int[] {32, 32},
+                passengerTrain.query().whereSeats(seats -> seats < 40).limit(2)
+                        .project(wagon -> ((PassengerWagon) wagon).getNumberOfSeats()));
+        assertEquals(0, passengerTrain.query().limit(0).count());
+        assertThrows(IllegalArgumentException.class, () -> passengerTrain.query().limit(-1));
+    }
+
+    @Test
+    public void T03_QueriesShortCircuit() {
+        int[] visited = new int[1];
+        assertTrue(passengerTrain.query().where(wagon -> {
+            visited[0]++;
+            return wagon.getId() == 8002;
+        }).anyMatch());
+        assertEquals(2, visited[0]);
+
+        visited[0] = 0;
+        assertEquals(3, passengerTrain.query().where(wagon -> visited[0]++ >= 0).limit(3).toList().size());
+        assertEquals(3, visited[0]);
+    }
+
+    @Test
+    public void T04_IdLookupAndReversedTrains() {
+        passengerTrain.reverse();
+        assertEquals(8007, passengerTrain.query().findFirst().getId());
+        assertEquals(8006, passengerTrain.query().whereIdEquals(8006).findFirst().getId());
+        assertEquals(1, passengerTrain.query().whereIdEquals(8006).whereSeats(seats -> seats == 44).count());
+        assertFalse(passengerTrain.query().whereIdEquals(8006).whereIdEquals(8005).anyMatch());
+        assertFalse(passengerTrain.query().whereIdEquals(9001).anyMatch());
+    }
+}